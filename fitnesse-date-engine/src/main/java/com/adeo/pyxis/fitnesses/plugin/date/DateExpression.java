@@ -0,0 +1,414 @@
+package com.adeo.pyxis.fitnesses.plugin.date;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.adeo.pyxis.fitnesses.plugin.date.internals.AbstractDateOptions;
+import com.adeo.pyxis.fitnesses.plugin.date.internals.EvaluationContext;
+
+/**
+ * The options of the date widgets, compiled once and evaluated against a
+ * reference date. The widgets delegate to this class, and fixtures can use it
+ * directly to compute the same dates as the wiki pages.
+ *
+ * <code>
+ * private static final DateExpression NEXT_WEEK = DateExpression.compile("+7d -t");
+ * ...
+ * String nextWeek = NEXT_WEEK.evaluate(System.currentTimeMillis());
+ * </code>
+ *
+ * The expression has the same format as the options between the parenthesis
+ * of the widgets (read the documentation of <code>AbstractDateWidget</code> in
+ * the module fitnesse-date-widgets for the list of available options).
+ *
+ * Instances are thread-safe: they can be kept in static fields and evaluated
+ * concurrently by many threads. The parsed options are never modified; the
+ * last results (see below) are written without synchronization, so two
+ * threads may calculate the same result. The evaluation reuses the calendar
+ * and the formatters of the current thread: a new result only allocates the
+ * returned string and the entry kept for the next evaluations, a result
+ * already kept allocates nothing. When the expression only adds hours,
+ * minutes, seconds or milliseconds, the date is calculated without calendar.
+ *
+ * The dates are calculated and formatted in the time zone and the locale of
+ * the current thread: the default time zone and the default locale of the JVM
+ * when the thread evaluates its first expression. They are kept for all the
+ * next evaluations of the thread, even if the defaults are changed later: to
+ * evaluate in other defaults, change them before starting a new thread.
+ * 
+ * The pages are rendered again and again with the same reference dates, so:
+ * - the compiled expressions are cached by expression (the least recently 
+ *   used are evicted, approximately, when the cache is full, @see CACHE_SIZE),
+ * - each expression keeps its last results, by reference date, time zone and
+ *   locale: evaluating it again with the same reference date on a thread with
+ *   the same time zone and locale returns the same string without any
+ *   calculation (!now(-t) and !tomorrow(-t) share the same expression, but not
+ *   the same result, @see RESULTS).
+ * An unchanged page is rendered again without parsing nor calculation.
+ *
+ * @see ReferenceDate
+ */
+public final class DateExpression
+{
+    /** Default pattern for a date without time. */
+    public static final String DATE_PATTERN = "dd/MM/yyyy";
+    /** Default pattern for a datetime. */
+    public static final String DATETIME_PATTERN = "dd/MM/yyyy HH:mm";
+
+    /** 
+     * Maximum number of compiled expressions kept in the cache (1024 by default,
+     * can be changed with the system property fitnesse.date.cacheSize).
+     */
+    public static final int CACHE_SIZE = Integer.getInteger("fitnesse.date.cacheSize", 1024).intValue();
+    
+    /** Compiled expressions, by expression. */
+    private static final ConcurrentMap<String, DateExpression> CACHE =
+        new ConcurrentHashMap<String, DateExpression>();
+
+    /** 
+     * Clock of the uses of the compiled expressions, advanced by each parsing:
+     * the expressions used since the last parsing have the same time of use.
+     */
+    private static final AtomicLong USES = new AtomicLong();
+
+    /** Expression to use when no option are given. */
+    public static final DateExpression DEFAULT =
+        new DateExpression("", AbstractDateOptions.DEFAULTS);
+
+    /** The source expression. */
+    private final String expression;
+
+    /** The parsed options. Never modified after the parsing. */
+    private final AbstractDateOptions options;
+
+    /** The pattern of the output. */
+    private final String pattern;
+
+    /** A date literal replaces the reference date ? */
+    private final boolean anchored;
+
+    /** A random date replaces the reference date ? */
+    private final boolean random;
+
+    /** The date calculation is a simple shift in milliseconds ? */
+    private final boolean fixedShift;
+
+    /** The shift in milliseconds if the calculation is a simple shift. */
+    private final long shiftMillis;
+
+    /** The calculated date is truncated or rounded ? */
+    private final boolean rounded;
+
+    /** 
+     * Number of results kept by expression: one for each reference date used
+     * together (now, tomorrow, yesterday), and a spare one.
+     */
+    private static final int RESULTS = 4;
+
+    /** 
+     * The last results, by reference date. Not a part of the state of the 
+     * expression: two threads may calculate the same result at the same time,
+     * and a thread may not see the result of another thread yet. The results
+     * are immutable, so a thread never reads a partial result.
+     */
+    private final Result[] results = new Result[RESULTS];
+
+    /** The slot of the next result kept (the oldest result is replaced). */
+    private int nextResult;
+
+    /** Time of the last use of the expression, to evict the least recently used. */
+    private volatile long lastUse;
+
+    /**
+     * Private constructor: use <code>compile</code>.
+     *
+     * @param expression the source expression
+     * @param options the parsed options
+     */
+    private DateExpression(String expression, AbstractDateOptions options) {
+        this.expression = expression;
+        this.options = options;
+        if (options.hasFormat()) {
+            this.pattern = options.getFormatPattern();
+        } else {
+            this.pattern = options.hasTime() ? DATETIME_PATTERN : DATE_PATTERN;
+        }
+        this.anchored = options.hasAnchor();
+        this.random = options.hasRandom();
+        this.fixedShift = options.isFixedShift();
+        this.shiftMillis = fixedShift ? options.getShiftMillis() : 0L;
+        this.rounded = options.hasRounding();
+    }
+
+    /**
+     * Parse the expression, or return the compiled expression from the cache.
+     *
+     * @param expression the options, as between the parenthesis of the widgets
+     *        (<code>null</code> or empty for the default options)
+     * @return the compiled expression
+     * @throws IllegalArgumentException if the expression is not valid
+     */
+    public static DateExpression compile(String expression) {
+        if (expression == null || expression.trim().length() == 0) {
+            return DEFAULT;
+        }
+        DateExpression result = CACHE.get(expression);
+        if (result != null) {
+            // Not written if unchanged: the expressions of a page are used again and again
+            long now = USES.get();
+            if (result.lastUse != now) {
+                result.lastUse = now;
+            }
+            return result;
+        }
+        // Two threads may parse the same expression: the first one is kept
+        result = new DateExpression(expression, new AbstractDateOptions(expression));
+        result.lastUse = USES.incrementAndGet();
+        DateExpression previous = CACHE.putIfAbsent(expression, result);
+        if (previous != null) {
+            return previous;
+        }
+        if (CACHE.size() > CACHE_SIZE) {
+            evict();
+        }
+        return result;
+    }
+
+    /**
+     * Remove the least recently used quarter of the compiled expressions.
+     * The expressions used at the same time as the last one removed are removed
+     * too, and the expressions used during the eviction may be removed or kept.
+     */
+    private static synchronized void evict() {
+        long[] uses = new long[CACHE.size()];
+        int count = 0;
+        for (DateExpression expression : CACHE.values()) {
+            if (count == uses.length) {
+                break; // added during the iteration
+            }
+            uses[count++] = expression.lastUse;
+        }
+        int kept = CACHE_SIZE - CACHE_SIZE / 4;
+        if (count <= kept) {
+            return; // already evicted by another thread
+        }
+        Arrays.sort(uses, 0, count);
+        long oldest = uses[count - kept - 1];
+        for (Map.Entry<String, DateExpression> entry : CACHE.entrySet()) {
+            if (entry.getValue().lastUse <= oldest) {
+                CACHE.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Calculate the date from the reference date.
+     *
+     * @param referenceMillis the reference date in milliseconds since the epoch
+     *        (ignored if the expression contains a date literal)
+     * @return the calculated date in milliseconds since the epoch
+     */
+    public long evaluateMillis(long referenceMillis) {
+        return evaluateMillis(referenceMillis, 0L);
+    }
+
+    /**
+     * Calculate the date of the given occurrence from the reference date.
+     * The occurrence is only used to draw a random date (@see isRandom).
+     *
+     * @param referenceMillis the reference date in milliseconds since the epoch
+     *        (ignored if the expression contains a date literal)
+     * @param index the occurrence
+     * @return the calculated date in milliseconds since the epoch
+     */
+    public long evaluateMillis(long referenceMillis, long index) {
+        if (!anchored && !random && fixedShift && !rounded) {
+            return referenceMillis + shiftMillis;
+        }
+        EvaluationContext context = EvaluationContext.current();
+        return calculate(context, reference(context, referenceMillis, index));
+    }
+
+    /**
+     * Calculate and format the date from the reference date.
+     *
+     * @param referenceMillis the reference date in milliseconds since the epoch
+     *        (ignored if the expression contains a date literal)
+     * @return the formatted date
+     */
+    public String evaluate(long referenceMillis) {
+        return evaluate(referenceMillis, 0L);
+    }
+
+    /**
+     * Calculate and format the date of the given occurrence from the reference 
+     * date. The occurrence is only used to draw a random date (@see isRandom).
+     *
+     * @param referenceMillis the reference date in milliseconds since the epoch
+     *        (ignored if the expression contains a date literal)
+     * @param index the occurrence
+     * @return the formatted date
+     */
+    public String evaluate(long referenceMillis, long index) {
+        EvaluationContext context = EvaluationContext.current();
+        if (random) {
+            long millis = calculate(context, reference(context, referenceMillis, index));
+            return context.format(pattern, millis);
+        }
+        
+        // The reference date is ignored with a date literal: one result for all
+        long key = anchored ? 0L : referenceMillis;
+        TimeZone zone = context.zone();
+        Locale locale = context.locale();
+        for (int i = 0; i < RESULTS; i++) {
+            Result result = results[i];
+            if (result != null && result.referenceMillis == key
+                    && result.isFor(zone, locale)) {
+                return result.text;
+            }
+        }
+        long millis = calculate(context, reference(context, referenceMillis, index));
+        String text = context.format(pattern, millis);
+        int slot = nextResult;
+        results[slot] = new Result(key, zone, locale, text);
+        nextResult = (slot + 1) % RESULTS;
+        return text;
+    }
+
+    /**
+     * Calculate and format the date from the reference date.
+     *
+     * @param reference the reference date
+     * @return the formatted date
+     */
+    public String evaluate(Date reference) {
+        return evaluate(reference.getTime());
+    }
+
+    /**
+     * Return if the expression draws a random date between two bounds (options
+     * seed, from, to) instead of using the reference date. The random date only
+     * depends on the seed, the bounds and the occurrence: the evaluation of the
+     * same occurrence always gives the same date (with relative bounds, for the
+     * same reference date).
+     *
+     * @return random date ?
+     */
+    public boolean isRandom() {
+        return random;
+    }
+
+    /**
+     * Return the date to calculate from: the date literal in the time zone of
+     * the thread if any, the reference date else, replaced by the random date
+     * of the occurrence if the expression is random.
+     *
+     * @param context the context of the current thread
+     * @param referenceMillis the reference date in milliseconds since the epoch
+     * @param index the occurrence
+     * @return the date in milliseconds since the epoch
+     */
+    private long reference(EvaluationContext context, long referenceMillis, long index) {
+        if (anchored) {
+            referenceMillis = options.getAnchorMillis(context);
+        }
+        if (random) {
+            referenceMillis = options.drawRandom(context, referenceMillis, index);
+        }
+        return referenceMillis;
+    }
+
+    /**
+     * Apply the time to set, the truncation or rounding, then the time to add 
+     * on the calendar of the thread (or simply shift the date if possible).
+     * The order does not depend on the order of the options: ~d +8h is 08:00.
+     *
+     * @param context the context of the current thread
+     * @param referenceMillis the reference date in milliseconds since the epoch
+     * @return the calculated date in milliseconds since the epoch
+     */
+    private long calculate(EvaluationContext context, long referenceMillis) {
+        if (fixedShift) {
+            long millis = rounded ? options.round(context.zone(), referenceMillis) : referenceMillis;
+            return millis + shiftMillis;
+        }
+        Calendar calendar = context.calendar(referenceMillis);
+        if (options.hasTimeToSet()) {
+            calendar = options.setTime(calendar);
+        }
+        if (rounded) {
+            calendar.setTimeInMillis(options.round(context.zone(), calendar.getTimeInMillis()));
+        }
+        if (options.hasTimeToAdd()) {
+            calendar = options.addTime(calendar);
+        }
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Return the pattern used to format the date.
+     *
+     * @return the pattern compatible with <code>SimpleDateFormat</code>
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /** A formatted date, its reference date and the context of the calculation. */
+    private static final class Result {
+
+        /** The reference date in milliseconds since the epoch (0 with a date literal). */
+        private final long referenceMillis;
+
+        /** The time zone of the calculation. */
+        private final TimeZone zone;
+
+        /** The locale of the formatting. */
+        private final Locale locale;
+
+        /** The formatted date. */
+        private final String text;
+
+        /**
+         * Constructor.
+         *
+         * @param referenceMillis the reference date
+         * @param zone the time zone of the calculation (not modified later)
+         * @param locale the locale of the formatting
+         * @param text the formatted date
+         */
+        Result(long referenceMillis, TimeZone zone, Locale locale, String text) {
+            this.referenceMillis = referenceMillis;
+            this.zone = zone;
+            this.locale = locale;
+            this.text = text;
+        }
+
+        /**
+         * Return if the result was calculated in the given time zone and locale.
+         * The contexts of the threads have their own time zone instance: the
+         * time zones are compared by identifier and rules.
+         *
+         * @param zone the time zone of the context
+         * @param locale the locale of the context
+         * @return same time zone and locale ?
+         */
+        boolean isFor(TimeZone zone, Locale locale) {
+            return (this.zone == zone || this.zone.equals(zone))
+                && (this.locale == locale || this.locale.equals(locale));
+        }
+    }
+}
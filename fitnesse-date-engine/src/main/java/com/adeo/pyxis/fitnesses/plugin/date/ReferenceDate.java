@@ -0,0 +1,195 @@
+package com.adeo.pyxis.fitnesses.plugin.date;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import com.adeo.pyxis.fitnesses.plugin.date.internals.DateLiteral;
+
+/**
+ * The reference dates of the date widgets: the starting points for the date
+ * calculations.
+ *
+ * The current date is read once, on the first use, and kept for all the next
+ * calls, so the same use of a widget gives always the same time. The other
+ * reference dates are calculated from this same instant, so !now(+1d) and
+ * !tomorrow always agree.
+ *
+ * <code>
+ * String tomorrow = DateExpression.DEFAULT.evaluate(ReferenceDate.TOMORROW.getMillis());
+ * </code>
+ *
+ * The fixtures run in other JVMs (the test systems forked by the wiki server),
+ * which must use the same current date as the wiki pages, even around midnight.
+ * So the current date is handed over instead of being read on each JVM:
+ * - if the system property fitnesse.date.reference is defined, its value is
+ *   used as the current date,
+ * - else if the environment variable FITNESSE_DATE_REFERENCE is defined, its 
+ *   value is used as the current date,
+ * - else the clock is read.
+ * The value is a number of milliseconds since the epoch, or a date literal 
+ * (2024-01-31T10:00 in the default time zone, @see DateLiteral) to replay
+ * the tests at a given date.
+ * The current date is then published in the system property, as soon as the
+ * widgets or the symbols are loaded by the wiki (@see publish), so before the
+ * first test system is launched. The property can be given to the test systems
+ * in the command pattern of the wiki (the undefined variables of the wiki are
+ * read in the system properties):
+ * <code>
+ * !define COMMAND_PATTERN {java -Dfitnesse.date.reference=${fitnesse.date.reference} -cp %p %m}
+ * </code>
+ */
+public enum ReferenceDate
+{
+    /** The current date (!now). */
+    NOW(0),
+    /** The current date + 1 day (!tomorrow). */
+    TOMORROW(1),
+    /** The current date - 1 day (!yesterday). */
+    YESTERDAY(-1);
+
+    /** System property giving and publishing the current date. */
+    public static final String PROPERTY = "fitnesse.date.reference";
+
+    /** Environment variable giving the current date. */
+    public static final String VARIABLE = "FITNESSE_DATE_REFERENCE";
+
+    /** Number of days to add to the current date. */
+    private final int days;
+
+    /**
+     * Private constructor.
+     *
+     * @param days the number of days to add to the current date
+     */
+    ReferenceDate(int days) {
+        this.days = days;
+    }
+
+    /**
+     * Return the reference date in milliseconds since the epoch.
+     *
+     * @return the reference date
+     * @throws IllegalArgumentException if the given current date is not valid
+     *         (thrown again by each call)
+     */
+    public long getMillis() {
+        long[] values = Instants.VALUES;
+        if (values == null) {
+            throw new IllegalArgumentException(Instants.ERROR);
+        }
+        return values[ordinal()];
+    }
+
+    /**
+     * Read the current date, if not done yet, and publish it in the system
+     * property. Called when the widgets and the symbols are loaded: the
+     * property must be defined before the wiki launches the test systems,
+     * even if no page using the widgets has been rendered yet.
+     *
+     * @throws IllegalArgumentException if the given current date is not valid
+     *         (nothing is published)
+     */
+    public static void publish() {
+        NOW.getMillis();
+    }
+
+    /**
+     * Return a new calendar positioned on the reference date.
+     * The calendar can be modified by the caller.
+     *
+     * @return the reference date
+     */
+    public Calendar getCalendar() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(getMillis());
+        return calendar;
+    }
+
+    /**
+     * Holder of the reference dates: the JVM initializes the class on the
+     * first call of <code>getMillis</code>, once, and publishes the values
+     * safely to all the threads. An invalid current date does not fail the
+     * initialization (the class would be unusable, with NoClassDefFoundError
+     * on the next uses): the error is kept and reported by each use.
+     */
+    private static final class Instants {
+
+        /** The reference dates, by ordinal (<code>null</code> if the current date is not valid). */
+        static final long[] VALUES;
+
+        /** The error if the given current date is not valid. */
+        static final String ERROR;
+
+        static {
+            long[] values = null;
+            String error = null;
+            try {
+                values = resolve();
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+            }
+            VALUES = values;
+            ERROR = error;
+        }
+
+        /**
+         * Calculate all the reference dates from the current date.
+         *
+         * @return the reference dates, by ordinal
+         */
+        private static long[] resolve() {
+            Calendar now = Calendar.getInstance();
+            now.setTimeInMillis(handOver(now.getTimeInMillis()));
+            ReferenceDate[] dates = ReferenceDate.values();
+            long[] values = new long[dates.length];
+            for (int i = 0; i < dates.length; i++) {
+                Calendar calendar = (Calendar) now.clone();
+                calendar.add(Calendar.DAY_OF_MONTH, dates[i].days);
+                values[i] = calendar.getTimeInMillis();
+            }
+            return values;
+        }
+
+        /**
+         * Read the current date given by the system property or the environment
+         * variable, and publish the current date in the system property.
+         *
+         * @param clockMillis the current date read on the clock
+         * @return the current date to use
+         * @throws IllegalArgumentException if the given date is not valid
+         */
+        private static long handOver(long clockMillis) {
+            String value = System.getProperty(PROPERTY);
+            if (value == null || value.trim().length() == 0) {
+                value = System.getenv(VARIABLE);
+            }
+
+            long millis = clockMillis;
+            if (value != null && value.trim().length() > 0) {
+                millis = parse(value.trim());
+            }
+            System.setProperty(PROPERTY, String.valueOf(millis));
+            return millis;
+        }
+
+        /**
+         * Parse the given current date.
+         *
+         * @param value milliseconds since the epoch or a date literal
+         * @return the date in milliseconds since the epoch
+         * @throws IllegalArgumentException if the date is not valid
+         */
+        private static long parse(String value) {
+            if (DateLiteral.isLiteral(value)) {
+                return DateLiteral.parse(value).getMillis(new GregorianCalendar());
+            }
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(value + " is not a valid reference date ("
+                        + PROPERTY + " or " + VARIABLE + "): milliseconds since the epoch "
+                        + "or yyyy-MM-dd[THH:mm[:ss[.SSS]]]");
+            }
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.adeo.pyxis.fitnesses.plugin.date.internals;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Bean to abstract the list of options allowed by the date widget.
+ * 
+ * @author Julien Sobczak
+ */
+public class AbstractDateOptions {
+    
+    /** Format of the with time option. */
+    private static final String OPTION_WITH_TIME = "-t";
+    
+    /** Format prefix of the format date option. */
+    private static final String OPTION_EXPLICIT_FORMAT = "-f";
+    
+    /** Instance with default values specified to use when no option are given. */
+    public static final AbstractDateOptions DEFAULTS = new AbstractDateOptions();
+    
+    /** The with time option is specified ? */
+    private boolean withTime = false;
+    
+    /** The with explicat format date option is specified ? */
+    private boolean withFormat = false;
+    /** The pattern of the explicit format. */
+    private String explicitPattern;
+    
+    /** The time to add option is specified ? */
+    private boolean withTimeToAdd = false;
+    /** Parser associated with the option time to add to mask the implementation. */
+    private TimeToAddParser timeToAdd;
+    
+    /** The date literal option is specified ? */
+    private boolean withAnchor = false;
+    /** The date literal. */
+    private DateLiteral anchor;
+    
+    /** The random date options are specified ? */
+    private boolean withRandom = false;
+    /** Parser associated with the random date options. */
+    private RandomDate random;
+    
+    /** The truncation or rounding option is specified ? */
+    private boolean withRounding = false;
+    /** Parser associated with the truncation or rounding option. */
+    private TimeRounding rounding;
+    
+    /** The time to set option is specified ? */
+    private boolean withTimeToSet = false;
+    /** Parser associated with the option time to set to mask the implementation. */
+    private TimeToSetParser timeToSet;
+    
+    /** Constructor to use when no option specified. */
+    public AbstractDateOptions() {
+        // the defaults are set directly on the declarations of fields
+    }
+    
+    /** 
+     * Constructor to use when options are specified.
+     * 
+     * @param expression the expression between the parenthesis
+     */
+    public AbstractDateOptions(final String expression) {
+        init(expression);
+    }
+    
+    /**
+     * Parse the options expression to extract the different options required.
+     * 
+     * @param expression the expression between the parenthesis
+     */
+    private void init(String expression) {
+        for (String option : tokenizeOptions(expression)) {
+            if (OPTION_WITH_TIME.equals(option)) {
+                withTime();
+            } else if (option.startsWith(OPTION_EXPLICIT_FORMAT)) {
+                withFormat(option.substring(OPTION_EXPLICIT_FORMAT.length()));
+            } else if (option.indexOf('=') > 0) {
+                int separator = option.indexOf('=');
+                withRandom(option.substring(0, separator), option.substring(separator + 1));
+            } else if (option.charAt(0) == TimeRounding.TRUNCATE 
+                    || option.charAt(0) == TimeRounding.ROUND) {
+                withRounding(option);
+            } else if (option.startsWith("+") || option.startsWith("-")) {
+                withTimeToAdd(option);
+            } else if (DateLiteral.isLiteral(option)) {
+                withAnchor(option);
+            } else {
+                withTimeToSet(option);
+            }
+        }   
+    }
+    
+    /**
+     * Parse the options expression and returns the list of tokens
+     * to analyze in order to determine the given options.
+     * The options are separated by spaces, except inside double quotes:
+     * ex: !now(-t -f"yy/MM/dd hh:mm") => ['-t', '-f"yy/MM/dd hh:mm"'] 
+     * 
+     * @param expression the expression between the parenthesis
+     * @return the list of the option token
+     */
+    private List<String> tokenizeOptions(String expression) {
+        List<String> result = new ArrayList<String>();
+        
+        int start = -1; // start of the current option, -1 between two options
+        boolean quoted = false;
+        for (int i = 0; i < expression.length(); i++) {
+            char character = expression.charAt(i);
+            if (character == '"') {
+                quoted = !quoted;
+            }
+            if (Character.isWhitespace(character) && !quoted) {
+                if (start >= 0) {
+                    result.add(expression.substring(start, i));
+                    start = -1;
+                }
+            } else if (start < 0) {
+                start = i;
+            }
+        }
+        if (start >= 0) {
+            result.add(expression.substring(start));
+        }
+        return result;
+    }
+    
+    /** 
+     * Enable the option with time. 
+     */
+    private void withTime() {
+        withTime = true;
+    }
+    
+    /**
+     * Return if the option time is enable.
+     * 
+     * @return time enable ?
+     */
+    public boolean hasTime() {
+        return withTime;
+    }
+    
+    /**
+     * Enable the option with explicit date format.
+     *  
+     * @param format the format compatible with <code>SimpleDateFormat</code>
+     * @see SimpleDateFormat
+     */
+    private void withFormat(String format) {
+        withFormat =  true;
+        if (format.startsWith("\"")) {
+            /*
+             * If the format contains space, we should enclosed the format
+             * with double quote characters.
+             */
+            if (format.length() < 2 || !format.endsWith("\"")) {
+                throw new IllegalArgumentException(format + " is not a valid format "
+                        + "(the double quotes are not closed)");
+            }
+            format = format.substring(1, format.length() - 1);
+        }
+        // Check the pattern: IllegalArgumentException if it is not valid
+        new SimpleDateFormat(format);
+        explicitPattern = format;
+    }
+    
+    /**
+     * Return if the explicit date format option is enable.
+     * 
+     * @return explicit date format enable ?
+     */
+    public boolean hasFormat() {
+        return withFormat;
+    }
+    
+    /**
+     * Return the pattern of the format to apply.
+     * Note: you should test before if the explicit date format is specify.
+     * 
+     * @return the pattern compatible with <code>SimpleDateFormat</code>
+     */
+    public String getFormatPattern() {
+        return explicitPattern;
+    }
+    
+    /**
+     * Enable the time to add option.
+     * 
+     * @param expression the expression associated with the option
+     */
+    private void withTimeToAdd(String expression) {
+        withTimeToAdd = true;
+        timeToAdd = new TimeToAddParser(expression);
+    }
+    
+    /**
+     * Return if the option time to add is specified.
+     * 
+     * @return time to add specified ?
+     */
+    public boolean hasTimeToAdd() {
+        return withTimeToAdd;
+    }
+    
+    /**
+     * Apply the option time to add on the parameter.
+     * 
+     * @param calendar the current calendar instance
+     * @return the new calendar with the added time 
+     */
+    public Calendar addTime(Calendar calendar) {
+        return timeToAdd.parse(calendar);
+    }
+    
+    /**
+     * Enable the date literal option: the date replaces the reference date.
+     * 
+     * @param literal the date literal (@see DateLiteral)
+     */
+    private void withAnchor(String literal) {
+        withAnchor = true;
+        anchor = DateLiteral.parse(literal);
+    }
+    
+    /**
+     * Return if a date literal is specified.
+     * 
+     * @return date literal specified ?
+     */
+    public boolean hasAnchor() {
+        return withAnchor;
+    }
+    
+    /**
+     * Return the date literal to use as reference date, in the time zone of
+     * the context.
+     * Note: you should test before if a date literal is specified.
+     * 
+     * @param context the context of the current thread
+     * @return the date in milliseconds since the epoch
+     */
+    public long getAnchorMillis(EvaluationContext context) {
+        return anchor.getMillis(context.literalCalendar());
+    }
+    
+    /**
+     * Enable the random date options.
+     * 
+     * @param name the name of the option (seed, from or to)
+     * @param value the value of the option
+     */
+    private void withRandom(String name, String value) {
+        if (!withRandom) {
+            withRandom = true;
+            random = new RandomDate();
+        }
+        random.set(name, value);
+    }
+    
+    /**
+     * Return if a random date is drawn as reference date.
+     * 
+     * @return random date options specified ?
+     */
+    public boolean hasRandom() {
+        return withRandom;
+    }
+    
+    /**
+     * Draw the random date of the given occurrence.
+     * Note: you should test before if the random date options are specified.
+     * 
+     * @param context the context of the current thread
+     * @param referenceMillis the reference date in milliseconds since the epoch
+     * @param index the occurrence
+     * @return the date in milliseconds since the epoch
+     */
+    public long drawRandom(EvaluationContext context, long referenceMillis, long index) {
+        return random.draw(context, referenceMillis, index);
+    }
+    
+    /**
+     * Enable the truncation or rounding option.
+     * 
+     * @param expression the expression associated with the option
+     */
+    private void withRounding(String expression) {
+        withRounding = true;
+        rounding = new TimeRounding(expression);
+    }
+    
+    /**
+     * Return if the option truncation or rounding is specified.
+     * 
+     * @return truncation or rounding specified ?
+     */
+    public boolean hasRounding() {
+        return withRounding;
+    }
+    
+    /**
+     * Apply the option truncation or rounding on the date, after the time to
+     * set and before the time to add.
+     * 
+     * @param zone the time zone of the local time
+     * @param millis the date in milliseconds since the epoch
+     * @return the rounded date in milliseconds since the epoch
+     */
+    public long round(TimeZone zone, long millis) {
+        return rounding.apply(zone, millis);
+    }
+    
+    /**
+     * Enable the time to set option.
+     * 
+     * @param expression the expression associated with the option
+     */
+    private void withTimeToSet(String expression) {
+        withTimeToSet = true;
+        timeToSet = new TimeToSetParser(expression);
+    }
+    
+    /**
+     * Return if the option time to set is specified.
+     * 
+     * @return time to set specified ?
+     */
+    public boolean hasTimeToSet() {
+        return withTimeToSet;
+    }
+    
+    /**
+     * Apply the option time to set on the parameter.
+     * 
+     * @param calendar the current calendar instance
+     * @return the new calendar with the time updated 
+     */
+    public Calendar setTime(Calendar calendar) {
+        return timeToSet.parse(calendar);
+    }
+    
+    /**
+     * Return if the options only shift the reference date by a fixed number
+     * of milliseconds: no time to set, and only hours, minutes, seconds or
+     * milliseconds to add. In this case, the calculation does not need a
+     * calendar (@see getShiftMillis).
+     * 
+     * @return fixed shift ?
+     */
+    public boolean isFixedShift() {
+        return !withTimeToSet && (!withTimeToAdd || timeToAdd.isFixedDuration());
+    }
+    
+    /**
+     * Return the shift to apply on the reference date in milliseconds.
+     * Note: you should test before if the shift is fixed.
+     * 
+     * @return the shift in milliseconds
+     */
+    public long getShiftMillis() {
+        return withTimeToAdd ? timeToAdd.getDurationMillis() : 0L;
+    }
+    
+}
@@ -0,0 +1,160 @@
+package com.adeo.pyxis.fitnesses.plugin.date.internals;
+
+import java.util.Calendar;
+
+/**
+ * Parser for the absolute date literals (ISO-8601 local date and time), used
+ * as reference date instead of the current date.
+ * Example: 2024-01-31, 2024-01-31T10:00, 2024-01-31T10:00:30, 2024-01-31T10:00:30.250
+ *
+ * The characters are read at fixed positions: no regex, no <code>SimpleDateFormat</code>.
+ * The literal keeps the local date and time, not an instant: it is resolved
+ * in the time zone of the calendar given for each evaluation (@see getMillis),
+ * so a literal parsed once is shared by threads with other time zones.
+ */
+public final class DateLiteral {
+
+    /** Length of a date: 2024-01-31 */
+    private static final int DATE_LENGTH = 10;
+    /** Length of a date with hours and minutes: 2024-01-31T10:00 */
+    private static final int MINUTE_LENGTH = 16;
+    /** Length of a date with seconds: 2024-01-31T10:00:30 */
+    private static final int SECOND_LENGTH = 19;
+    /** Length of a date with milliseconds: 2024-01-31T10:00:30.250 */
+    private static final int MILLISECOND_LENGTH = 23;
+
+    /** Number of days by month (February of leap years excepted). */
+    private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+    /** The fields of the local date and time (the month starts at 1). */
+    private final int year;
+    private final int month;
+    private final int day;
+    private final int hour;
+    private final int minute;
+    private final int second;
+    private final int millisecond;
+
+    /** Private constructor: use <code>parse</code>. */
+    private DateLiteral(int year, int month, int day, int hour, int minute, int second,
+            int millisecond) {
+        this.year = year;
+        this.month = month;
+        this.day = day;
+        this.hour = hour;
+        this.minute = minute;
+        this.second = second;
+        this.millisecond = millisecond;
+    }
+
+    /**
+     * Return if the option is a date literal (starts with a year followed by '-').
+     * Note: the literal may still be invalid (@see parse).
+     *
+     * @param option the option
+     * @return date literal ?
+     */
+    public static boolean isLiteral(String option) {
+        return option.length() > 4
+            && isDigit(option, 0) && isDigit(option, 1) && isDigit(option, 2) && isDigit(option, 3)
+            && option.charAt(4) == '-';
+    }
+
+    /**
+     * Parse the literal.
+     *
+     * @param literal the date literal
+     * @return the parsed literal
+     * @throws IllegalArgumentException if the literal is not a valid date
+     */
+    public static DateLiteral parse(String literal) {
+        int length = literal.length();
+        if (length != DATE_LENGTH && length != MINUTE_LENGTH
+                && length != SECOND_LENGTH && length != MILLISECOND_LENGTH) {
+            throw invalid(literal);
+        }
+
+        int year = number(literal, 0, 4);
+        expect(literal, 4, '-');
+        int month = number(literal, 5, 2);
+        expect(literal, 7, '-');
+        int day = number(literal, 8, 2);
+
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int millisecond = 0;
+        if (length >= MINUTE_LENGTH) {
+            expect(literal, 10, 'T');
+            hour = number(literal, 11, 2);
+            expect(literal, 13, ':');
+            minute = number(literal, 14, 2);
+        }
+        if (length >= SECOND_LENGTH) {
+            expect(literal, 16, ':');
+            second = number(literal, 17, 2);
+        }
+        if (length == MILLISECOND_LENGTH) {
+            expect(literal, 19, '.');
+            millisecond = number(literal, 20, 3);
+        }
+
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            throw invalid(literal);
+        }
+
+        return new DateLiteral(year, month, day, hour, minute, second, millisecond);
+    }
+
+    /**
+     * Return the date in the time zone of the given calendar. The local time
+     * may not exist or exist twice (changes of daylight saving time): it is
+     * resolved by the calendar.
+     *
+     * @param calendar a <code>GregorianCalendar</code>, modified by the call
+     * @return the date in milliseconds since the epoch
+     */
+    public long getMillis(Calendar calendar) {
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        calendar.set(Calendar.MILLISECOND, millisecond);
+        return calendar.getTimeInMillis();
+    }
+
+    /* Utility methods. */
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2 && (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0)) {
+            return 29;
+        }
+        return DAYS_IN_MONTH[month - 1];
+    }
+
+    private static boolean isDigit(String literal, int index) {
+        char character = literal.charAt(index);
+        return character >= '0' && character <= '9';
+    }
+
+    private static int number(String literal, int start, int digits) {
+        int result = 0;
+        for (int i = start; i < start + digits; i++) {
+            if (!isDigit(literal, i)) {
+                throw invalid(literal);
+            }
+            result = result * 10 + (literal.charAt(i) - '0');
+        }
+        return result;
+    }
+
+    private static void expect(String literal, int index, char expected) {
+        if (literal.charAt(index) != expected) {
+            throw invalid(literal);
+        }
+    }
+
+    private static IllegalArgumentException invalid(String literal) {
+        return new IllegalArgumentException(literal
+                + " is not a valid date (yyyy-MM-dd[THH:mm[:ss[.SSS]]])");
+    }
+}
@@ -0,0 +1,201 @@
+package com.adeo.pyxis.fitnesses.plugin.date.internals;
+
+import java.text.DateFormatSymbols;
+import java.text.FieldPosition;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Objects reused by the evaluation of the date expressions on the current thread.
+ * <code>Calendar</code> and <code>SimpleDateFormat</code> are not thread-safe,
+ * so each thread gets its own instances instead of creating new ones for each
+ * evaluation.
+ *
+ * <code>
+ * EvaluationContext context = EvaluationContext.current();
+ * Calendar calendar = context.calendar(millis);
+ * // update the calendar...
+ * String text = context.format("dd/MM/yyyy", calendar.getTimeInMillis());
+ * </code>
+ *
+ * The time zone and the locale of the context are the default time zone and
+ * the default locale of the JVM when the thread evaluates its first expression.
+ * The calendar and all the formatters of the thread use them, even if the
+ * defaults are changed later: a new thread takes the new defaults.
+ *
+ * Note: the instance must not be shared with another thread.
+ */
+public final class EvaluationContext {
+
+    /** Maximum number of formatters kept by thread. */
+    private static final int MAX_FORMATS = 32;
+
+    /** One context by thread. */
+    private static final ThreadLocal<EvaluationContext> CURRENT =
+        new ThreadLocal<EvaluationContext>() {
+            @Override
+            protected EvaluationContext initialValue() {
+                return new EvaluationContext();
+            }
+        };
+
+    /** Calendar used for the date calculations, in the time zone of the context. */
+    private final Calendar calendar = Calendar.getInstance();
+
+    /** Calendar used to resolve the date literals, in the time zone of the context. */
+    private final Calendar literalCalendar = new GregorianCalendar(calendar.getTimeZone());
+
+    /** Locale of the formatters. */
+    private final Locale locale = Locale.getDefault();
+
+    /** Date given to the formatters. */
+    private final Date date = new Date(0L);
+
+    /** Buffer given to the formatters. */
+    private final StringBuffer buffer = new StringBuffer(32);
+
+    /** Field position required by the formatters (ignored). */
+    private final FieldPosition position = new FieldPosition(0);
+
+    /** Formatters already created, by pattern. */
+    private final Map<String, SimpleDateFormat> formats =
+        new HashMap<String, SimpleDateFormat>();
+
+    /** Private constructor: use <code>current()</code>. */
+    private EvaluationContext() {
+        // nothing to do
+    }
+
+    /**
+     * Return the context of the current thread.
+     *
+     * @return the context
+     */
+    public static EvaluationContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Return the calendar of the thread, positioned on the given date.
+     * The calendar is reused by the next calls on the same thread.
+     *
+     * @param millis the date in milliseconds since the epoch
+     * @return the calendar
+     */
+    public Calendar calendar(long millis) {
+        calendar.setTimeInMillis(millis);
+        return calendar;
+    }
+
+    /**
+     * Return the calendar of the thread used to resolve the date literals
+     * (@see DateLiteral): always Gregorian, whatever the default locale.
+     *
+     * @return the calendar
+     */
+    public Calendar literalCalendar() {
+        return literalCalendar;
+    }
+
+    /**
+     * Return the time zone of the calendar of the thread.
+     *
+     * @return the time zone
+     */
+    public TimeZone zone() {
+        return calendar.getTimeZone();
+    }
+
+    /**
+     * Return the locale of the formatters of the thread.
+     *
+     * @return the locale
+     */
+    public Locale locale() {
+        return locale;
+    }
+
+    /**
+     * Return the formatter of the thread for the given pattern.
+     *
+     * @param pattern the pattern compatible with <code>SimpleDateFormat</code>
+     * @return the formatter
+     * @throws IllegalArgumentException if the pattern is not valid
+     */
+    public SimpleDateFormat formatter(String pattern) {
+        SimpleDateFormat format = formats.get(pattern);
+        if (format == null) {
+            if (formats.size() >= MAX_FORMATS) {
+                formats.clear();
+            }
+            if (isNumeric(pattern)) {
+                // With explicit symbols, the formatter does not look up (and
+                // allocate) the names of the fields for each formatting
+                format = new SimpleDateFormat(pattern, DateFormatSymbols.getInstance(locale));
+            } else {
+                // Not with explicit symbols for the names: the formatter would
+                // lose the standalone names of the months in some locales 
+                // (Polish, Russian...), MMMM alone would give the name of the
+                // month as in a date (genitive) instead of the nominative
+                format = new SimpleDateFormat(pattern, locale);
+            }
+            // The formatter takes the default time zone of its creation: use the one of the context
+            format.setTimeZone(calendar.getTimeZone());
+            formats.put(pattern, format);
+        }
+        return format;
+    }
+
+    /**
+     * Return if the pattern only contains numeric fields: no name of month
+     * (MMM, L), of day (E), of era (G), of time zone (z) nor AM/PM marker (a).
+     * The text between single quotes is ignored.
+     *
+     * @param pattern the pattern compatible with <code>SimpleDateFormat</code>
+     * @return only numeric fields ?
+     */
+    static boolean isNumeric(String pattern) {
+        boolean quoted = false;
+        int months = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char character = pattern.charAt(i);
+            if (character == '\'') {
+                quoted = !quoted;
+            } else if (!quoted) {
+                if (character == 'M') {
+                    if (++months >= 3) {
+                        return false;
+                    }
+                    continue;
+                }
+                if (character == 'L' || character == 'E' || character == 'G'
+                        || character == 'z' || character == 'a') {
+                    return false;
+                }
+            }
+            months = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Format the date with the given pattern.
+     *
+     * @param pattern the pattern compatible with <code>SimpleDateFormat</code>
+     * @param millis the date in milliseconds since the epoch
+     * @return the formatted date
+     */
+    public String format(String pattern, long millis) {
+        SimpleDateFormat format = formatter(pattern);
+        date.setTime(millis);
+        buffer.setLength(0);
+        format.format(date, buffer, position);
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,109 @@
+package com.adeo.pyxis.fitnesses.plugin.date.internals;
+
+/**
+ * Parser for the random date options: seed=42, from=2024-01-01, to=+1y.
+ * The bounds are date literals (@see DateLiteral) or times to add to the
+ * reference date (@see TimeToAddParser). By default, the dates are drawn
+ * between the reference date and one year later.
+ *
+ * The date of an occurrence is drawn with SplitMix64, a splittable generator:
+ * the n-th value of the sequence of a seed is calculated directly, without
+ * calculating the previous ones and without state. So the same seed, the
+ * same bounds and the same occurrence always give the same date, whatever the
+ * page, the run or the thread. Note: relative bounds depend on the reference
+ * date, so only date literals give the same dates from one day to another.
+ */
+public class RandomDate {
+
+    /** Increment of the SplitMix64 sequence (golden ratio). */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** Seed of the sequence, mixed to decorrelate the sequences of close seeds. */
+    private long seed = mix(0L);
+
+    /** The lower bound is a date literal ? */
+    private boolean fromAbsolute = false;
+    /** The lower bound, if it is a date literal. */
+    private DateLiteral fromLiteral;
+    /** The lower bound, if it is relative to the reference date. */
+    private TimeToAddParser fromShift = new TimeToAddParser("+");
+
+    /** The upper bound is a date literal ? */
+    private boolean toAbsolute = false;
+    /** The upper bound, if it is a date literal. */
+    private DateLiteral toLiteral;
+    /** The upper bound, if it is relative to the reference date. */
+    private TimeToAddParser toShift = new TimeToAddParser("+1y");
+
+    /**
+     * Parse the option.
+     *
+     * @param name the name of the option (seed, from or to)
+     * @param value the value of the option
+     * @throws IllegalArgumentException if the option is not valid
+     */
+    public void set(String name, String value) {
+        if ("seed".equals(name)) {
+            seed = mix(Long.parseLong(value));
+        } else if ("from".equals(name)) {
+            fromAbsolute = DateLiteral.isLiteral(value);
+            if (fromAbsolute) {
+                fromLiteral = DateLiteral.parse(value);
+            } else {
+                fromShift = parseShift(value);
+            }
+        } else if ("to".equals(name)) {
+            toAbsolute = DateLiteral.isLiteral(value);
+            if (toAbsolute) {
+                toLiteral = DateLiteral.parse(value);
+            } else {
+                toShift = parseShift(value);
+            }
+        } else {
+            throw new IllegalArgumentException(name + " is not a valid option");
+        }
+    }
+
+    /**
+     * Draw the date of the given occurrence, between the bounds (included).
+     *
+     * @param context the context of the current thread (for the bounds)
+     * @param referenceMillis the reference date in milliseconds since the epoch
+     * @param index the occurrence
+     * @return the drawn date in milliseconds since the epoch
+     */
+    public long draw(EvaluationContext context, long referenceMillis, long index) {
+        long from = fromAbsolute
+            ? fromLiteral.getMillis(context.literalCalendar())
+            : fromShift.parse(context.calendar(referenceMillis)).getTimeInMillis();
+        long to = toAbsolute
+            ? toLiteral.getMillis(context.literalCalendar())
+            : toShift.parse(context.calendar(referenceMillis)).getTimeInMillis();
+        if (from > to) {
+            long swap = from;
+            from = to;
+            to = swap;
+        }
+
+        long random = mix(seed + (index + 1) * GOLDEN_GAMMA);
+        return from + (random >>> 1) % (to - from + 1);
+    }
+
+    /* Utility methods. */
+
+    private static TimeToAddParser parseShift(String value) {
+        if (!value.startsWith("+") && !value.startsWith("-")) {
+            throw new IllegalArgumentException(value + " is not a valid bound "
+                    + "(a date literal or a time to add)");
+        }
+        return new TimeToAddParser(value);
+    }
+
+    /** The mixing function of SplitMix64. */
+    private static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,120 @@
+package com.adeo.pyxis.fitnesses.plugin.date.internals;
+
+import java.util.Calendar;
+
+/**
+ * Base class to refactor the subclasses and avoid code duplication.
+ * Parse a time expression (see options available for widgets date) and
+ * let the subclasses processes the token extracted.
+ * 
+ * Example: 2012y6m
+ * => doProcess(..., Calender.YEAR, 2012);
+ * => doProcess(..., Calender.MONTH, 6); 
+ * 
+ * @author Julien Sobczak
+ */
+public abstract class TimeExpressionParser
+{
+    /** Expression to parse. */
+    private String expression;
+    
+    /** Time elements of the expression, in order. */
+    private TimeField[] fields;
+    
+    /** Values associated with the time elements, in order. */
+    private int[] values;
+    
+    /**
+     * Unique constructor.
+     * The expression is tokenized once, so the parsing can be applied many 
+     * times without analyzing the expression again.
+     * 
+     * @param expression the expression to parse.
+     * @throws IllegalArgumentException if a time element is not valid 
+     */
+    public TimeExpressionParser(String expression) {
+        this.expression = expression;
+        tokenize();
+    }
+    
+    /**
+     * Split the expression in time elements and their values.
+     * Example: 2012y6M => [YEAR, MONTH] and [2012, 6]
+     */
+    private void tokenize() {
+        int count = 0;
+        for (int i = 0; i < expression.length(); i++) {
+            if (!Character.isDigit(expression.charAt(i))) {
+                count++;
+            }
+        }
+        
+        fields = new TimeField[count];
+        values = new int[count];
+        
+        int numberAccumulator = 0;
+        int index = 0;
+        for (int i = 0; i < expression.length(); i++) {
+            char character = expression.charAt(i);
+            if (Character.isDigit(character)) {
+                numberAccumulator = numberAccumulator * 10 + Character.digit(character, 10);
+            } else { // letter
+                fields[index] = TimeField.parse(character);
+                values[index] = numberAccumulator;
+                index++;
+                numberAccumulator = 0;
+            }
+        }
+    }
+    
+    /** 
+     * Parse the expression and calls subclasses for the processing. 
+     * 
+     * @param calendar the current date on which do the processing is applied
+     * @return the date updated 
+     */
+    public Calendar parse(Calendar calendar) {
+        for (int i = 0; i < fields.length; i++) {
+            doProcess(calendar, fields[i].getType(), values[i]);
+        }
+        return calendar;
+    }
+    
+    /**
+     * Return the number of time elements in the expression.
+     * 
+     * @return the number of time elements
+     */
+    protected int size() {
+        return fields.length;
+    }
+    
+    /**
+     * Return the time element at the given position.
+     * 
+     * @param index the position in the expression
+     * @return the time element
+     */
+    protected TimeField getField(int index) {
+        return fields[index];
+    }
+    
+    /**
+     * Return the value of the time element at the given position.
+     * 
+     * @param index the position in the expression
+     * @return the value
+     */
+    protected int getValue(int index) {
+        return values[index];
+    }
+    
+    /**
+     * Override this method in subclass to define the behaviour.
+     * 
+     * @param calendar the current date to update
+     * @param type the Calendar constant value
+     * @param value the value associated with the type.
+     */
+    protected abstract void doProcess(Calendar calendar, int type, int value);
+}
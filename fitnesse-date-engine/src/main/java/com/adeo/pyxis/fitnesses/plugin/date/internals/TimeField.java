@@ -0,0 +1,123 @@
+package com.adeo.pyxis.fitnesses.plugin.date.internals;
+
+import java.util.Calendar;
+
+/**
+ * Enumeration to match a time element with the <code>Calendar</code> constant associated.
+ * Ex: the user give 2012y. With this enum, you can retrieve the value of Calendar.YEAR easily.
+ * 
+ * <code>
+ * int type = TimeField.parse("y").getType();
+ * // type == Calendar.YEAR
+ * </code>
+ * 
+ * @see Calendar
+ * @author Julien Sobczak
+ */
+public enum TimeField {
+    
+    YEAR("y", Calendar.YEAR, 0L),
+    MONTH("M", Calendar.MONTH, 0L),
+    DAY("d", Calendar.DAY_OF_MONTH, 0L),
+    HOUR("h", Calendar.HOUR_OF_DAY, 60L * 60L * 1000L),
+    MINUTE("m", Calendar.MINUTE, 60L * 1000L),
+    SECOND("s", Calendar.SECOND, 1000L),
+    MILLISECOND("S", Calendar.MILLISECOND, 1L);
+    
+    /** The value as in the option. */
+    private String value;
+    
+    /** The associated type as in the Calendar class. */
+    private int type;
+    
+    /** 
+     * The length in milliseconds of the time element, or 0 if the length
+     * depends on the date (a day may last 23 or 25 hours with the daylight 
+     * saving time, a month from 28 to 31 days...).
+     */
+    private long millis;
+    
+    /**
+     * Private constructor.
+     * 
+     * @param value the value as in the option
+     * @param type  the Calendar constant value
+     * @param millis the fixed length of the time element, 0 if not fixed
+     */
+    TimeField(String value, int type, long millis) {
+        this.value = value;
+        this.type = type;
+        this.millis = millis;
+    }
+    
+    /**
+     * Return the value as present in options.
+     * 
+     * @return the character
+     */
+    public String getValue() {
+        return this.value;
+    }
+    
+    /**
+     * Return the value of the Calendar constant.
+     * 
+     * @return the value
+     */
+    public int getType() {
+        return this.type;
+    }
+    
+    /**
+     * Return if the time element has always the same length, whatever the date
+     * it is added to. <code>Calendar.add</code> simply shifts the time in 
+     * milliseconds for theses elements.
+     * 
+     * @return fixed length ?
+     */
+    public boolean isFixedLength() {
+        return this.millis != 0L;
+    }
+    
+    /**
+     * Return the length of the time element in milliseconds.
+     * Note: you should test before if the time element has a fixed length.
+     * 
+     * @return the length in milliseconds
+     */
+    public long getMillis() {
+        return this.millis;
+    }
+    
+    /**
+     * Parse the value and return the enum value associated.
+     * 
+     * @param value the value as in options
+     * @return the enum instance associated
+     */
+    public static TimeField parse(String value) {
+        for (TimeField field : values()) {
+           if (field.getValue().equals(value)) {
+               return field;
+           }
+        }
+        throw new IllegalArgumentException(value + " is not a valid type");
+    }
+    
+    /**
+     * Parse the character and return the enum value associated.
+     * Same as <code>parse(String)</code> without creating a string.
+     * 
+     * @param value the character as in options
+     * @return the enum instance associated
+     */
+    public static TimeField parse(char value) {
+        for (TimeField field : values()) {
+           if (field.getValue().charAt(0) == value) {
+               return field;
+           }
+        }
+        throw new IllegalArgumentException(value + " is not a valid type");
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.adeo.pyxis.fitnesses.plugin.date.internals;
+
+import java.util.TimeZone;
+
+/**
+ * Parser for the truncation and rounding options.
+ * Example: ~d (midnight), ~h (start of the hour), ~15m (quarter of hour),
+ * ^h (nearest hour), ^30s (nearest half minute)
+ *
+ * The date is truncated ('~') or rounded to the nearest unit ('^', the half
+ * rounded up) on the local time: the offset of the time zone is added to the
+ * date in milliseconds, the result is rounded with a single division, then the
+ * offset is removed. No calendar field is set nor recomputed. A rounded local
+ * time skipped by the start of the daylight saving time is moved forward 
+ * (02:00 becomes 03:00), as the date literals.
+ *
+ * Only the time elements with a fixed length can be used (days, hours, minutes,
+ * seconds, milliseconds): the months and the years have no fixed length.
+ * The count must divide the upper unit (~15m, ~6h, ~250S, but not ~7m nor ~2d),
+ * so the result is the same as setting the calendar fields of the local time:
+ * ~15m sets the minute m to m - m % 15 and the lower fields to 0.
+ *
+ * The truncation or rounding is applied after the time to set and before the
+ * time to add, whatever the order of the options: ~d +8h is 08:00 of the day.
+ */
+public class TimeRounding {
+
+    /** Operator of the truncation. */
+    public static final char TRUNCATE = '~';
+
+    /** Operator of the rounding to the nearest unit. */
+    public static final char ROUND = '^';
+
+    /** Length of a day in local time. */
+    private static final long DAY_MILLIS = 24L * 60L * 60L * 1000L;
+
+    /** Round to the nearest unit instead of truncating ? */
+    private boolean nearest;
+
+    /** The unit in milliseconds. */
+    private long unitMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param expression the option, starting with the operator
+     * @throws IllegalArgumentException if the option is not valid
+     */
+    public TimeRounding(String expression) {
+        nearest = expression.charAt(0) == ROUND;
+        int end = expression.length() - 1;
+        if (end < 1) {
+            throw invalid(expression);
+        }
+
+        long count = 1L;
+        if (end > 1) {
+            count = 0L;
+            for (int i = 1; i < end; i++) {
+                char character = expression.charAt(i);
+                if (!Character.isDigit(character) || count > Integer.MAX_VALUE) {
+                    throw invalid(expression);
+                }
+                count = count * 10 + Character.digit(character, 10);
+            }
+        }
+
+        TimeField field = TimeField.parse(expression.charAt(end));
+        long length = (field == TimeField.DAY) ? DAY_MILLIS : field.getMillis();
+        if (count == 0L || length == 0L) {
+            throw invalid(expression);
+        }
+        unitMillis = count * length;
+        // The day is the upper unit of the hours and of itself
+        long upperMillis = (field == TimeField.DAY || field == TimeField.HOUR) 
+            ? DAY_MILLIS : TimeField.values()[field.ordinal() - 1].getMillis();
+        if (upperMillis % unitMillis != 0L) {
+            throw invalid(expression);
+        }
+    }
+
+    /**
+     * Truncate or round the date in the given time zone.
+     *
+     * @param zone the time zone of the local time
+     * @param millis the date in milliseconds since the epoch
+     * @return the rounded date in milliseconds since the epoch
+     */
+    public long apply(TimeZone zone, long millis) {
+        int offset = zone.getOffset(millis);
+        long local = millis + offset;
+        if (nearest) {
+            local += unitMillis / 2;
+        }
+        long rounded = local - mod(local, unitMillis);
+
+        // The offset of the date is kept if valid (the same occurrence of an ambiguous time)
+        long sameOffset = rounded - offset;
+        int roundedOffset = zone.getOffset(sameOffset);
+        if (roundedOffset == offset) {
+            return sameOffset;
+        }
+        // The offset changed between the date and the rounded date (daylight saving time)
+        long otherOffset = rounded - roundedOffset;
+        if (zone.getOffset(otherOffset) == roundedOffset) {
+            return otherOffset;
+        }
+        // The rounded local time does not exist: moved forward, as the date literals
+        return Math.max(sameOffset, otherOffset);
+    }
+
+    /* Utility methods. */
+
+    private static long mod(long value, long divisor) {
+        long remainder = value % divisor;
+        return (remainder < 0) ? remainder + divisor : remainder;
+    }
+
+    private static IllegalArgumentException invalid(String expression) {
+        return new IllegalArgumentException(expression + " is not a valid rounding "
+                + "(~ or ^, an optional count dividing the upper unit, and d, h, m, s or S)");
+    }
+}
@@ -0,0 +1,64 @@
+package com.adeo.pyxis.fitnesses.plugin.date.internals;
+
+import java.util.Calendar;
+
+/**
+ * Parser for the option time to add.
+ * Example: +1d, -5M4d
+ *   
+ * @author Julien Sobczak
+ */
+public class TimeToAddParser extends TimeExpressionParser
+{
+    /** 1 if '+' or -1 if '-'. */
+    private int factor;
+    
+    /** {@inheritDoc} */
+    public TimeToAddParser(String expression) {
+        super(expression.substring(1)); // remove leading operator
+        this.factor = expression.startsWith("+") ? 1 : -1;
+    }
+    
+    /**
+     * Add the time element given to the current date.
+     * 
+     * @param calendar {@inheritDoc}
+     * @param type {@inheritDoc}
+     * @param value {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    protected void doProcess(Calendar calendar, int type, int value) {
+        calendar.add(type, factor * value);
+    }
+    
+    /**
+     * Return if all the time elements to add have a fixed length (hours, 
+     * minutes, seconds, milliseconds). In this case, adding the time is just
+     * a shift of the date in milliseconds (@see getDurationMillis).
+     * 
+     * @return only fixed length time elements ?
+     */
+    public boolean isFixedDuration() {
+        for (int i = 0; i < size(); i++) {
+            if (!getField(i).isFixedLength()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Return the time to add in milliseconds (negative for a subtraction).
+     * Note: you should test before if the duration is fixed.
+     * 
+     * @return the duration in milliseconds
+     */
+    public long getDurationMillis() {
+        long duration = 0L;
+        for (int i = 0; i < size(); i++) {
+            duration += getField(i).getMillis() * getValue(i);
+        }
+        return factor * duration;
+    }
+}
\ No newline at end of file
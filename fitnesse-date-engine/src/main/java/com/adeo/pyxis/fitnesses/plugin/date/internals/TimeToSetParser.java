@@ -3,8 +3,9 @@ package com.adeo.pyxis.fitnesses.plugin.date.internals;
 import java.util.Calendar;
 
 /**
- * Parser for the option time to add.
- * Example: 1d, 2012y5M
+ * Parser for the option time to set.
+ * Example: 1d, 2012y5M (the months are numbered from 1, as in the dates:
+ * 5M is May)
  *   
  * @author Julien Sobczak
  */
@@ -16,7 +17,7 @@ public class TimeToSetParser extends TimeExpressionParser
     }
 
     /**
-     * Add the time element given to the current date.
+     * Set the time element given on the current date.
      * 
      * @param calendar {@inheritDoc}
      * @param type {@inheritDoc}
@@ -25,6 +26,7 @@ public class TimeToSetParser extends TimeExpressionParser
      */
     @Override
     protected void doProcess(Calendar calendar, int type, int value) {
-        calendar.set(type, value);
+        // Calendar.MONTH starts at 0 (January)
+        calendar.set(type, (type == Calendar.MONTH) ? value - 1 : value);
     }
 }
\ No newline at end of file
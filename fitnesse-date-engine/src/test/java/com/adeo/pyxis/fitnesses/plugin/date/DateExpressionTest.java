@@ -0,0 +1,459 @@
+package com.adeo.pyxis.fitnesses.plugin.date;
+
+import static org.junit.Assert.*;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the evaluation of the date expressions outside of the widgets.
+ */
+public class DateExpressionTest
+{
+    /* Reference date used in assertions. (@see setUp) */
+
+    private Calendar cReference;
+    private long reference;
+
+    @Before
+    public void setUp() {
+        cReference = Calendar.getInstance();
+        cReference.set(2011, Calendar.SEPTEMBER, 8, 9, 54, 55);
+        cReference.set(Calendar.MILLISECOND, 210);
+        reference = cReference.getTimeInMillis();
+    }
+
+    @Test
+    public void testDefaults() {
+        assertSame(DateExpression.DEFAULT, DateExpression.compile(null));
+        assertSame(DateExpression.DEFAULT, DateExpression.compile("  "));
+        assertEquals("08/09/2011", DateExpression.DEFAULT.evaluate(reference));
+    }
+
+    @Test
+    public void testTimeOption() {
+        assertEquals("08/09/2011 09:54", DateExpression.compile("-t").evaluate(reference));
+    }
+
+    @Test
+    public void testFormatOption() {
+        assertEquals("2011/09/08 09:54:55:210",
+                DateExpression.compile("-f\"yyyy/MM/dd HH:mm:ss:SSS\"").evaluate(reference));
+    }
+
+    @Test
+    public void testSetAndAdd() {
+        DateExpression expression = DateExpression.compile("2012y +2d3h -t");
+        cReference.set(Calendar.YEAR, 2012);
+        cReference.add(Calendar.DAY_OF_MONTH, 2);
+        cReference.add(Calendar.HOUR, 3);
+        assertEquals(cReference.getTimeInMillis(), expression.evaluateMillis(reference));
+        assertEquals("10/09/2012 12:54", expression.evaluate(reference));
+    }
+
+    @Test
+    public void testFixedShift() {
+        DateExpression expression = DateExpression.compile("-2h30m -t");
+        assertEquals(reference - (150L * 60L * 1000L), expression.evaluateMillis(reference));
+        assertEquals("08/09/2011 07:24", expression.evaluate(reference));
+    }
+
+    @Test
+    public void testMonthsStartAt1() {
+        assertEquals("08/05/2011", DateExpression.compile("5M").evaluate(reference));
+    }
+
+    @Test
+    public void testHoursAreOn24Hours() {
+        assertEquals("08/09/2011 15:30", DateExpression.compile("15h30m -t").evaluate(reference));
+        assertEquals("08/09/2011 00:00", DateExpression.compile("0h0m -t").evaluate(reference));
+    }
+
+    @Test
+    public void testTruncation() {
+        String format = " -f\"yyyy-MM-dd HH:mm:ss.SSS\"";
+        assertEquals("2011-09-08 00:00:00.000", DateExpression.compile("~d" + format).evaluate(reference));
+        assertEquals("2011-09-08 09:00:00.000", DateExpression.compile("~h" + format).evaluate(reference));
+        assertEquals("2011-09-08 09:45:00.000", DateExpression.compile("~15m" + format).evaluate(reference));
+        assertEquals("2011-09-08 09:54:55.000", DateExpression.compile("~s" + format).evaluate(reference));
+        assertEquals("2011-09-08 06:00:00.000", DateExpression.compile("~6h" + format).evaluate(reference));
+        assertEquals("2011-09-09 00:00:00.000", DateExpression.compile("+1d ~d" + format).evaluate(reference));
+        // Always applied before the time to add, whatever the order of the options
+        assertEquals("2011-09-08 18:00:00.000", DateExpression.compile("~d +18h" + format).evaluate(reference));
+        assertEquals("2011-09-08 18:00:00.000", DateExpression.compile("+18h ~d" + format).evaluate(reference));
+        assertEquals("2011-10-08 00:00:00.000", DateExpression.compile("^d +1M" + format).evaluate(reference));
+        assertEquals("2012-09-08 14:00:00.000", DateExpression.compile("2012y14h ~h" + format).evaluate(reference));
+    }
+
+    @Test
+    public void testRounding() {
+        String format = " -f\"yyyy-MM-dd HH:mm:ss.SSS\"";
+        assertEquals("2011-09-08 10:00:00.000", DateExpression.compile("^h" + format).evaluate(reference));
+        assertEquals("2011-09-08 00:00:00.000", DateExpression.compile("^d" + format).evaluate(reference));
+        assertEquals("2011-09-08 09:55:00.000", DateExpression.compile("^m" + format).evaluate(reference));
+        assertEquals("2011-09-08 09:54:00.000", DateExpression.compile("^2m" + format).evaluate(reference));
+        assertEquals("2011-09-08 09:54:55.000", DateExpression.compile("^s" + format).evaluate(reference));
+        assertEquals("2011-09-08 10:00:00.000", DateExpression.compile("^30m" + format).evaluate(reference));
+    }
+
+    @Test
+    public void testTruncationWithDaylightSavingTime() throws Exception {
+        // The context of a thread keeps the time zone of its creation: use a new thread
+        final String format = " -f\"yyyy-MM-dd HH:mm:ss.SSS Z\"";
+        final List<String> results = new ArrayList<String>();
+        TimeZone defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Paris"));
+        try {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    results.add(DateExpression.compile("2024-03-31T12:00 ~d" + format).evaluate(0L));
+                    results.add(DateExpression.compile("2024-03-31T12:00 ~h" + format).evaluate(0L));
+                    results.add(DateExpression.compile("2024-10-27T12:30 ^d" + format).evaluate(0L));
+                    results.add(DateExpression.compile("2024-10-27T02:40 ~h" + format).evaluate(0L));
+                    results.add(DateExpression.compile("2024-03-31T01:40 ^h" + format).evaluate(0L));
+                }
+            };
+            thread.start();
+            thread.join();
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+        assertEquals("2024-03-31 00:00:00.000 +0100", results.get(0));
+        assertEquals("2024-03-31 12:00:00.000 +0200", results.get(1));
+        assertEquals("2024-10-28 00:00:00.000 +0100", results.get(2));
+        // 02:40 is ambiguous: the literal is resolved in standard time (+0100)
+        assertEquals("2024-10-27 02:00:00.000 +0100", results.get(3));
+        // 02:00 does not exist: moved forward
+        assertEquals("2024-03-31 03:00:00.000 +0200", results.get(4));
+    }
+
+    @Test
+    public void testInvalidRoundings() {
+        String[] invalids = { "~", "^", "~M", "~1y", "~0h", "~xh", "~h2", "^1.5h", 
+            "~2d", "~5h", "~7m", "^45s", "~3S", "~48h" };
+        for (String invalid : invalids) {
+            try {
+                DateExpression.compile(invalid);
+                fail(invalid + " should be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testDateLiterals() {
+        String format = " -f\"yyyy-MM-dd HH:mm:ss.SSS\"";
+        assertEquals("2024-02-29 00:00:00.000", DateExpression.compile("2024-02-29" + format).evaluate(reference));
+        assertEquals("2024-01-31 10:05:00.000", DateExpression.compile("2024-01-31T10:05" + format).evaluate(reference));
+        assertEquals("2024-01-31 10:05:07.000", DateExpression.compile("2024-01-31T10:05:07" + format).evaluate(reference));
+        assertEquals("2024-01-31 10:05:07.089", DateExpression.compile("2024-01-31T10:05:07.089" + format).evaluate(reference));
+    }
+
+    @Test
+    public void testDateLiteralReplacesTheReferenceDate() {
+        DateExpression expression = DateExpression.compile("2024-01-31T10:00 +1M -t");
+        assertEquals("29/02/2024 10:00", expression.evaluate(reference));
+        assertEquals("29/02/2024 10:00", expression.evaluate(0L));
+    }
+
+    @Test
+    public void testDateLiteralsAreInTheZoneOfTheThread() throws Exception {
+        String[] expressions = { "2024-01-15T12:00 -t",
+            "seed=1 from=2024-01-15T12:00 to=2024-01-15T12:00 -t" };
+        // Compiled with another default time zone than the evaluations
+        TimeZone defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Paris"));
+        try {
+            for (String expression : expressions) {
+                DateExpression.compile(expression);
+            }
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+        for (String expression : expressions) {
+            assertEquals(expression, "15/01/2024 12:00",
+                    evaluateIn(TimeZone.getTimeZone("UTC"), Locale.UK, expression, reference));
+            assertEquals(expression, "15/01/2024 12:00",
+                    evaluateIn(TimeZone.getTimeZone("America/Sao_Paulo"), Locale.UK, expression, reference));
+        }
+    }
+
+    @Test
+    public void testInvalidDateLiterals() {
+        String[] literals = { "2023-02-29", "2024-13-01", "2024-00-10", "2024-1-31", 
+            "2024-01-31 10:00", "2024-01-31T24:00", "2024-01-31T10:60", "2024-01-31T10:00:00.1",
+            "2024-01-3a", "2024-01-31T10h00" };
+        for (String literal : literals) {
+            try {
+                DateExpression.compile(literal);
+                fail(literal + " should be invalid");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testRandomDatesAreWithinBounds() {
+        DateExpression expression = DateExpression.compile("seed=7 from=-1M to=2011-09-10T00:00 -t");
+        assertTrue(expression.isRandom());
+        Calendar from = (Calendar) cReference.clone();
+        from.add(Calendar.MONTH, -1);
+        Calendar to = (Calendar) cReference.clone();
+        to.set(2011, Calendar.SEPTEMBER, 10, 0, 0, 0);
+        to.set(Calendar.MILLISECOND, 0);
+
+        java.util.Set<Long> distinct = new java.util.HashSet<Long>();
+        for (int index = 0; index < 10000; index++) {
+            long millis = expression.evaluateMillis(reference, index);
+            assertTrue(millis >= from.getTimeInMillis() && millis <= to.getTimeInMillis());
+            assertEquals(millis, expression.evaluateMillis(reference, index));
+            distinct.add(Long.valueOf(millis));
+        }
+        assertTrue(distinct.size() > 9900);
+    }
+
+    @Test
+    public void testRandomDatesDependOnTheSeed() {
+        DateExpression seed1 = DateExpression.compile("seed=1 -f\"yyyy-MM-dd HH:mm:ss.SSS\"");
+        DateExpression seed2 = DateExpression.compile("seed=2 -f\"yyyy-MM-dd HH:mm:ss.SSS\"");
+        assertFalse(seed1.evaluate(reference, 3).equals(seed2.evaluate(reference, 3)));
+        assertEquals(seed1.evaluate(reference, 3), seed1.evaluate(reference, 3));
+        assertFalse(DateExpression.compile("-t").isRandom());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRandomOption() {
+        DateExpression.compile("seed=1 until=+1d");
+    }
+
+    @Test
+    public void testNamesInOtherLocales() throws Exception {
+        // The months alone have another form than in a date in these languages
+        String[] patterns = { "MMMM", "dd MMMM yyyy", "EEEE", "MMM", "dd/MM/yyyy HH:mm", "hh:mm a" };
+        Locale[] locales = { new Locale("pl", "PL"), new Locale("ru", "RU"), Locale.FRANCE };
+        for (Locale locale : locales) {
+            for (String pattern : patterns) {
+                assertEquals(locale + " " + pattern,
+                        new SimpleDateFormat(pattern, locale).format(new java.util.Date(reference)),
+                        evaluateIn(locale, "-f\"" + pattern + "\"", reference));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTimeElement() {
+        DateExpression.compile("+1x");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidFormat() {
+        DateExpression.compile("-fbb");
+    }
+
+    @Test
+    public void testUnclosedFormats() {
+        String[] formats = { "-f\"", "-f\"yyyy", "-t -f\"dd MM" };
+        for (String format : formats) {
+            try {
+                DateExpression.compile(format);
+                fail(format + " should be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testZoneAndLocaleAreKeptByThread() throws Exception {
+        final long noon = 1705320000000L; // 2024-01-15T12:00Z
+        final List<String> results = new ArrayList<String>();
+        TimeZone defaultZone = TimeZone.getDefault();
+        Locale defaultLocale = Locale.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        Locale.setDefault(Locale.UK);
+        try {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    results.add(DateExpression.compile("-fHH").evaluate(noon));
+                    // The defaults change after the first evaluation of the thread
+                    TimeZone.setDefault(TimeZone.getTimeZone("Europe/Paris"));
+                    Locale.setDefault(Locale.FRANCE);
+                    results.add(DateExpression.compile("-f\"HH:mm MMMM\"").evaluate(noon));
+                    results.add(DateExpression.compile("~d -fHH").evaluate(noon));
+                }
+            };
+            thread.start();
+            thread.join();
+        } finally {
+            TimeZone.setDefault(defaultZone);
+            Locale.setDefault(defaultLocale);
+        }
+        assertEquals("12", results.get(0));
+        assertEquals("12:00 January", results.get(1));
+        assertEquals("00", results.get(2));
+    }
+
+    @Test
+    public void testResultsAreKeptByZoneAndLocale() throws Exception {
+        long noon = 1705320000000L; // 2024-01-15T12:00Z
+        String expression = "-f\"HH:mm MMMM\"";
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        TimeZone paris = TimeZone.getTimeZone("Europe/Paris");
+        assertEquals("12:00 January", evaluateIn(utc, Locale.UK, expression, noon));
+        assertEquals("13:00 January", evaluateIn(paris, Locale.UK, expression, noon));
+        assertEquals("13:00 janvier", evaluateIn(paris, Locale.FRANCE, expression, noon));
+        assertEquals("12:00 janvier", evaluateIn(utc, Locale.FRANCE, expression, noon));
+        assertEquals("12:00 January", evaluateIn(utc, Locale.UK, expression, noon));
+    }
+
+    @Test
+    public void testEvaluationDoesNotChangeTheExpression() {
+        DateExpression expression = DateExpression.compile("1M +1M");
+        String first = expression.evaluate(reference);
+        assertEquals(first, expression.evaluate(reference));
+    }
+
+    @Test
+    public void testCompiledExpressionsAreCached() {
+        DateExpression expression = DateExpression.compile("+1d -t");
+        assertSame(expression, DateExpression.compile("+1d -t"));
+        assertNotSame(expression, DateExpression.compile("+1d  -t"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedExpressionsAreEvicted() {
+        DateExpression first = DateExpression.compile("-fyyyy");
+        DateExpression second = DateExpression.compile("-fMM");
+        for (int i = 0; i < DateExpression.CACHE_SIZE; i++) {
+            DateExpression.compile("+" + i + "S");
+            DateExpression.compile("-fMM"); // keep the second expression in use
+        }
+        assertNotSame(first, DateExpression.compile("-fyyyy"));
+        assertSame(second, DateExpression.compile("-fMM"));
+    }
+
+    @Test
+    public void testLastResultIsReused() {
+        DateExpression expression = DateExpression.compile("2012y -t");
+        String first = expression.evaluate(reference);
+        assertSame(first, expression.evaluate(reference));
+        assertEquals("08/09/2012 09:55", expression.evaluate(reference + 60000L));
+        assertEquals(first, expression.evaluate(reference));
+    }
+
+    @Test
+    public void testResultsAreKeptByReferenceDate() {
+        // As !now(-t), !tomorrow(-t) and !yesterday(-t) on the same page
+        DateExpression expression = DateExpression.compile("+1h -t -fHH:mm:ss.SSS");
+        long day = 24L * 60L * 60L * 1000L;
+        String now = expression.evaluate(reference);
+        String tomorrow = expression.evaluate(reference + day);
+        String yesterday = expression.evaluate(reference - day);
+        for (int i = 0; i < 3; i++) {
+            assertSame(now, expression.evaluate(reference));
+            assertSame(tomorrow, expression.evaluate(reference + day));
+            assertSame(yesterday, expression.evaluate(reference - day));
+        }
+
+        // The oldest results are replaced by the new reference dates
+        for (int i = 1; i <= 4; i++) {
+            expression.evaluate(reference + i);
+        }
+        String again = expression.evaluate(reference);
+        assertEquals(now, again);
+        assertNotSame(now, again);
+    }
+
+    @Test
+    public void testConcurrentEvaluations() throws Exception {
+        final DateExpression expression = DateExpression.compile("2012y +1M3d -f\"yyyy-MM-dd HH:mm:ss.SSS\"");
+        final List<Long> references = new ArrayList<Long>();
+        final List<String> expected = new ArrayList<String>();
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        for (int i = 0; i < 100; i++) {
+            Calendar calendar = (Calendar) cReference.clone();
+            calendar.add(Calendar.HOUR, i * 29);
+            references.add(calendar.getTimeInMillis());
+            calendar.set(Calendar.YEAR, 2012);
+            calendar.add(Calendar.MONTH, 1);
+            calendar.add(Calendar.DAY_OF_MONTH, 3);
+            expected.add(format.format(calendar.getTime()));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(new Callable<Integer>() {
+                    public Integer call() {
+                        int errors = 0;
+                        for (int n = 0; n < 200; n++) {
+                            for (int i = 0; i < references.size(); i++) {
+                                if (!expected.get(i).equals(expression.evaluate(references.get(i)))) {
+                                    errors++;
+                                }
+                            }
+                        }
+                        return errors;
+                    }
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(Integer.valueOf(0), result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /* Utility methods used in assertions. */
+
+    /**
+     * Evaluate the expression with the given default locale. The context of a
+     * thread keeps the formatters created with the locale of the first use:
+     * use a new thread.
+     */
+    private static String evaluateIn(Locale locale, String expression, long reference)
+            throws Exception {
+        return evaluateIn(TimeZone.getDefault(), locale, expression, reference);
+    }
+
+    /** Evaluate the expression on a new thread, with the given default time zone and locale. */
+    private static String evaluateIn(TimeZone zone, Locale locale, final String expression,
+            final long reference) throws Exception {
+        final String[] result = new String[1];
+        TimeZone defaultZone = TimeZone.getDefault();
+        Locale defaultLocale = Locale.getDefault();
+        TimeZone.setDefault(zone);
+        Locale.setDefault(locale);
+        try {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    result[0] = DateExpression.compile(expression).evaluate(reference);
+                }
+            };
+            thread.start();
+            thread.join();
+        } finally {
+            TimeZone.setDefault(defaultZone);
+            Locale.setDefault(defaultLocale);
+        }
+        return result[0];
+    }
+}
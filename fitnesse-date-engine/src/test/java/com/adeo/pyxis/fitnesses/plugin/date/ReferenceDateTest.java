@@ -0,0 +1,139 @@
+package com.adeo.pyxis.fitnesses.plugin.date;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Calendar;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the hand-over of the current date between the JVMs. The reference dates
+ * are read once by JVM: each test loads the class again in a new class loader,
+ * as in a new JVM.
+ */
+public class ReferenceDateTest
+{
+    /** The value of the system property before the test. */
+    private String property;
+
+    @Before
+    public void setUp() {
+        property = System.getProperty(ReferenceDate.PROPERTY);
+    }
+
+    @After
+    public void tearDown() {
+        if (property == null) {
+            System.clearProperty(ReferenceDate.PROPERTY);
+        } else {
+            System.setProperty(ReferenceDate.PROPERTY, property);
+        }
+    }
+
+    @Test
+    public void testClockIsPublished() throws Exception {
+        System.clearProperty(ReferenceDate.PROPERTY);
+        // Only if the environment of the build does not give the current date
+        if (System.getenv(ReferenceDate.VARIABLE) == null) {
+            long before = System.currentTimeMillis();
+            long now = newJvmNow();
+            assertTrue(now >= before && now <= System.currentTimeMillis());
+            assertEquals(String.valueOf(now), System.getProperty(ReferenceDate.PROPERTY));
+        }
+    }
+
+    @Test
+    public void testPublishedDateIsUsed() throws Exception {
+        System.clearProperty(ReferenceDate.PROPERTY);
+        long first = newJvmNow();
+        Thread.sleep(5L);
+        assertEquals(first, newJvmNow());
+        assertEquals(first, newJvmNow());
+    }
+
+    @Test
+    public void testGivenMillis() throws Exception {
+        System.setProperty(ReferenceDate.PROPERTY, " 1315468495210 ");
+        assertEquals(1315468495210L, newJvmNow());
+        assertEquals("1315468495210", System.getProperty(ReferenceDate.PROPERTY));
+    }
+
+    @Test
+    public void testGivenDateLiteral() throws Exception {
+        System.setProperty(ReferenceDate.PROPERTY, "2011-09-08T23:59:55");
+        Calendar expected = Calendar.getInstance();
+        expected.clear();
+        expected.set(2011, Calendar.SEPTEMBER, 8, 23, 59, 55);
+        assertEquals(expected.getTimeInMillis(), newJvmNow());
+        assertEquals(String.valueOf(expected.getTimeInMillis()), System.getProperty(ReferenceDate.PROPERTY));
+    }
+
+    @Test
+    public void testPublishWithoutUse() throws Exception {
+        System.clearProperty(ReferenceDate.PROPERTY);
+        newJvmType().getMethod("publish").invoke(null);
+        assertNotNull(System.getProperty(ReferenceDate.PROPERTY));
+    }
+
+    @Test
+    public void testInvalidDate() throws Exception {
+        System.setProperty(ReferenceDate.PROPERTY, "yesterday");
+        Class<?> type = newJvmType();
+        Object now = type.getEnumConstants()[ReferenceDate.NOW.ordinal()];
+        // Rejected by each use, not only by the first one
+        String[] methods = { "publish", "getMillis", "getMillis", "publish" };
+        for (String method : methods) {
+            try {
+                invoke(type.getMethod(method), now);
+                fail("yesterday should be rejected by " + method);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("yesterday"));
+                assertTrue(e.getMessage(), e.getMessage().contains(ReferenceDate.PROPERTY));
+            }
+        }
+        assertEquals("yesterday", System.getProperty(ReferenceDate.PROPERTY));
+    }
+
+    /* Utility methods. */
+
+    /**
+     * Load the class <code>ReferenceDate</code> in a new class loader and
+     * return the current date, as read by a new JVM.
+     */
+    private static long newJvmNow() throws Exception {
+        Class<?> type = newJvmType();
+        Object now = type.getEnumConstants()[ReferenceDate.NOW.ordinal()];
+        return ((Long) invoke(type.getMethod("getMillis"), now)).longValue();
+    }
+
+    /** Invoke the method and throw its exception as is. */
+    private static Object invoke(Method method, Object target) throws Exception {
+        try {
+            return method.invoke(target);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Load the class <code>ReferenceDate</code> in a new class loader, as in
+     * a new JVM.
+     */
+    private static Class<?> newJvmType() throws Exception {
+        URL location = ReferenceDate.class.getProtectionDomain().getCodeSource().getLocation();
+        ClassLoader loader = new URLClassLoader(new URL[] { location }, null);
+        return loader.loadClass(ReferenceDate.class.getName());
+    }
+}
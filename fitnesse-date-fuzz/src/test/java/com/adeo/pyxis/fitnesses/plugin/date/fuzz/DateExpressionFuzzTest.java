@@ -0,0 +1,154 @@
+package com.adeo.pyxis.fitnesses.plugin.date.fuzz;
+
+import static org.junit.Assert.*;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.adeo.pyxis.fitnesses.plugin.date.DateExpression;
+
+/**
+ * Compare the compiled expressions (cached expressions, reused calendars and
+ * formatters, fixed shifts without calendar, memoized results, random dates)
+ * with the original calendar rendering, on random options, reference dates and
+ * occurrences, in time zones with and without daylight saving time.
+ *
+ * The compiled expressions and their results are shared by the threads of all
+ * the time zones: each case is also evaluated on a thread of another time zone
+ * first, and the result of the thread of the run must not depend on it.
+ *
+ * The run is bounded by the system properties <code>fuzz.iterations</code>
+ * (number of cases) and <code>fuzz.budget</code> (duration in milliseconds),
+ * shared by the time zones. The cases are generated from the seed
+ * <code>fuzz.seed</code> (random by default, reported with the failures).
+ */
+public class DateExpressionFuzzTest
+{
+    /** The time zones: without daylight saving time, at 2h, at midnight, of 30 minutes. */
+    private static final String[] ZONES = {
+        "UTC", "Europe/Paris", "America/Sao_Paulo", "Australia/Lord_Howe"
+    };
+
+    /** The compiled expression, formatted with the formatter of the thread. */
+    private static final DifferentialFuzzer.Engine COMPILED = new DifferentialFuzzer.Engine() {
+        public String getName() {
+            return "compiled expression";
+        }
+
+        public String render(String options, long referenceMillis, long occurrence) {
+            return DateExpression.compile(options).evaluate(referenceMillis, occurrence);
+        }
+    };
+
+    /** The date calculated by the compiled expression, formatted with a new formatter. */
+    private static final DifferentialFuzzer.Engine CALCULATED = new DifferentialFuzzer.Engine() {
+        public String getName() {
+            return "calculated millis";
+        }
+
+        public String render(String options, long referenceMillis, long occurrence) {
+            DateExpression expression = DateExpression.compile(options);
+            return new SimpleDateFormat(expression.getPattern())
+                .format(new Date(expression.evaluateMillis(referenceMillis, occurrence)));
+        }
+    };
+
+    /** The compiled expression evaluated twice: the second result is the memoized one. */
+    private static final DifferentialFuzzer.Engine MEMOIZED = new DifferentialFuzzer.Engine() {
+        public String getName() {
+            return "memoized result";
+        }
+
+        public String render(String options, long referenceMillis, long occurrence) {
+            DateExpression expression = DateExpression.compile(options);
+            expression.evaluate(referenceMillis, occurrence);
+            return expression.evaluate(referenceMillis, occurrence);
+        }
+    };
+
+    /**
+     * Return the engine evaluating the compiled expression on a thread of
+     * another time zone first, then on the current thread.
+     *
+     * @param otherZone the executor whose single thread has another time zone
+     * @return the engine
+     */
+    private static DifferentialFuzzer.Engine afterOtherZone(final ExecutorService otherZone) {
+        return new DifferentialFuzzer.Engine() {
+            public String getName() {
+                return "evaluated in another time zone first";
+            }
+
+            public String render(final String options, final long referenceMillis, final long occurrence) {
+                try {
+                    otherZone.submit(new Callable<String>() {
+                        public String call() {
+                            return DateExpression.compile(options).evaluate(referenceMillis, occurrence);
+                        }
+                    }).get();
+                } catch (ExecutionException e) {
+                    // rejected options: rejected by the current thread too
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return DateExpression.compile(options).evaluate(referenceMillis, occurrence);
+            }
+        };
+    }
+
+    @Test
+    public void testCompiledExpressionsRenderAsTheCalendar() throws Exception {
+        Long seedProperty = Long.getLong("fuzz.seed");
+        final long seed = (seedProperty != null) ? seedProperty.longValue() : System.nanoTime();
+        final long iterations = Long.getLong("fuzz.iterations", 2000000L).longValue() / ZONES.length;
+        final long budget = Long.getLong("fuzz.budget", 30000L).longValue() / ZONES.length;
+
+        final List<DifferentialFuzzer.Report> reports = new ArrayList<DifferentialFuzzer.Report>();
+        TimeZone defaultZone = TimeZone.getDefault();
+        try {
+            for (int i = 0; i < ZONES.length; i++) {
+                // The context of a thread keeps the time zone of its first evaluation
+                TimeZone.setDefault(TimeZone.getTimeZone(ZONES[(i + 1) % ZONES.length]));
+                ExecutorService otherZone = Executors.newSingleThreadExecutor();
+                otherZone.submit(new Runnable() {
+                    public void run() {
+                        DateExpression.DEFAULT.evaluate(0L);
+                    }
+                }).get();
+
+                TimeZone.setDefault(TimeZone.getTimeZone(ZONES[i]));
+                final long zoneSeed = seed + i;
+                final DifferentialFuzzer.Engine afterOtherZone = afterOtherZone(otherZone);
+                Thread thread = new Thread() {
+                    @Override
+                    public void run() {
+                        // In another time zone first: the results are not kept yet by the current thread
+                        reports.add(new DifferentialFuzzer(new LegacyCalendarEngine(),
+                                afterOtherZone, COMPILED, CALCULATED, MEMOIZED)
+                            .run(zoneSeed, iterations, budget));
+                    }
+                };
+                thread.start();
+                thread.join();
+                otherZone.shutdown();
+            }
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+
+        assertEquals(ZONES.length, reports.size());
+        for (DifferentialFuzzer.Report report : reports) {
+            assertTrue(report.toString(), report.getFailures().isEmpty());
+            assertTrue(report.toString(), report.getIterations() > 0);
+        }
+    }
+}
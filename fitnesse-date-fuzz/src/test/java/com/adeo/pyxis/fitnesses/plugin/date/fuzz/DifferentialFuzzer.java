@@ -0,0 +1,328 @@
+package com.adeo.pyxis.fitnesses.plugin.date.fuzz;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Differential fuzzing harness: random options, reference dates and occurrences
+ * are rendered by a reference engine and by the engines to check, and the
+ * outputs must be identical. For each difference, the options, the reference
+ * date and the occurrence are minimized (options removed, numbers reduced,
+ * date truncated) while the engines still disagree, so the reported
+ * counterexample is short.
+ *
+ * The run stops after a number of iterations or when the time budget is
+ * exhausted, whichever comes first. The same seed generates the same cases:
+ * the seed is reported with the counterexamples to replay them.
+ */
+public final class DifferentialFuzzer
+{
+    /** Maximum number of counterexamples reported. */
+    private static final int MAX_FAILURES = 5;
+
+    /** Units used to truncate the reference date during the minimization. */
+    private static final long[] REFERENCE_UNITS = {
+        24L * 60L * 60L * 1000L, 60L * 60L * 1000L, 60L * 1000L, 1000L
+    };
+
+    /**
+     * An engine rendering the options against a reference date.
+     */
+    public interface Engine {
+
+        /**
+         * Return the name of the engine, used in the reports.
+         *
+         * @return the name
+         */
+        String getName();
+
+        /**
+         * Render the date.
+         *
+         * @param options the options, as between the parenthesis of the widgets
+         * @param referenceMillis the reference date in milliseconds since the epoch
+         * @param occurrence the occurrence of the widget in the page (random dates)
+         * @return the rendered date
+         * @throws IllegalArgumentException if the options are not valid
+         */
+        String render(String options, long referenceMillis, long occurrence);
+    }
+
+    /** The engine giving the expected outputs. */
+    private final Engine reference;
+
+    /** The engines to check. */
+    private final Engine[] candidates;
+
+    /**
+     * Constructor.
+     *
+     * @param reference the engine giving the expected outputs
+     * @param candidates the engines to check
+     */
+    public DifferentialFuzzer(Engine reference, Engine... candidates) {
+        this.reference = reference;
+        this.candidates = candidates;
+    }
+
+    /**
+     * Run the random cases.
+     *
+     * @param seed the seed of the generated cases
+     * @param iterations the maximum number of cases
+     * @param budgetMillis the maximum duration of the run in milliseconds
+     * @return the report of the run
+     */
+    public Report run(long seed, long iterations, long budgetMillis) {
+        Report report = new Report(seed);
+        Random random = new Random(seed);
+        OptionGenerator generator = new OptionGenerator(random);
+        long deadline = System.currentTimeMillis() + budgetMillis;
+
+        for (long i = 0; i < iterations && report.failures.size() < MAX_FAILURES; i++) {
+            if ((i & 0xff) == 0 && System.currentTimeMillis() > deadline) {
+                break;
+            }
+            String options = generator.nextOptions();
+            long referenceMillis = generator.nextReference();
+            long occurrence = generator.nextOccurrence();
+            report.iterations++;
+            String expected = render(reference, options, referenceMillis, occurrence);
+            for (Engine candidate : candidates) {
+                if (!expected.equals(render(candidate, options, referenceMillis, occurrence))) {
+                    report.failures.add(minimize(candidate, options, referenceMillis, occurrence));
+                    break;
+                }
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Render the case with the reference engine and the candidate.
+     *
+     * @return the same output (or both rejected the options) ?
+     */
+    private boolean agree(Engine candidate, String options, long referenceMillis, long occurrence) {
+        return render(reference, options, referenceMillis, occurrence)
+            .equals(render(candidate, options, referenceMillis, occurrence));
+    }
+
+    private static String render(Engine engine, String options, long referenceMillis, long occurrence) {
+        try {
+            return engine.render(options, referenceMillis, occurrence);
+        } catch (IllegalArgumentException e) {
+            return "rejected";
+        } catch (RuntimeException e) {
+            return "error " + e;
+        }
+    }
+
+    /**
+     * Reduce the case while the engines still disagree.
+     *
+     * @return the description of the minimized counterexample
+     */
+    private String minimize(Engine candidate, String options, long referenceMillis, long occurrence) {
+        List<String> tokens = tokenize(options);
+        boolean reduced = true;
+        while (reduced) {
+            reduced = false;
+
+            // Remove the options one by one
+            for (int i = 0; i < tokens.size() && tokens.size() > 1; i++) {
+                List<String> fewer = new ArrayList<String>(tokens);
+                fewer.remove(i);
+                if (!agree(candidate, join(fewer), referenceMillis, occurrence)) {
+                    tokens = fewer;
+                    reduced = true;
+                    i--;
+                }
+            }
+
+            // Remove the time elements and reduce the numbers of each option
+            for (int i = 0; i < tokens.size(); i++) {
+                for (String smaller : simplerOptions(tokens.get(i))) {
+                    List<String> simpler = new ArrayList<String>(tokens);
+                    simpler.set(i, smaller);
+                    if (!agree(candidate, join(simpler), referenceMillis, occurrence)) {
+                        tokens = simpler;
+                        reduced = true;
+                        break;
+                    }
+                }
+            }
+
+            // Truncate the reference date
+            for (long unit : REFERENCE_UNITS) {
+                long truncated = referenceMillis - mod(referenceMillis, unit);
+                if (truncated != referenceMillis
+                        && !agree(candidate, join(tokens), truncated, occurrence)) {
+                    referenceMillis = truncated;
+                    reduced = true;
+                    break;
+                }
+            }
+
+            // Reduce the occurrence
+            for (long smaller : new long[] { 0L, 1L, occurrence / 2 }) {
+                if (smaller < occurrence && !agree(candidate, join(tokens), referenceMillis, smaller)) {
+                    occurrence = smaller;
+                    reduced = true;
+                    break;
+                }
+            }
+        }
+
+        String minimized = join(tokens);
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+        return "options '" + minimized + "'"
+            + ", reference " + iso.format(new Date(referenceMillis)) + " (" + referenceMillis + ")"
+            + ", occurrence " + occurrence
+            + ", zone " + TimeZone.getDefault().getID()
+            + ": " + reference.getName() + " renders '"
+            + render(reference, minimized, referenceMillis, occurrence) + "'"
+            + ", " + candidate.getName() + " renders '"
+            + render(candidate, minimized, referenceMillis, occurrence) + "'"
+            + " (original options '" + options + "')";
+    }
+
+    /* Utility methods. */
+
+    /** Split the options on the spaces, except between double quotes. */
+    private static List<String> tokenize(String options) {
+        List<String> tokens = new ArrayList<String>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < options.length(); i++) {
+            char character = options.charAt(i);
+            if (character == '"') {
+                quoted = !quoted;
+            }
+            if (character == ' ' && !quoted) {
+                if (token.length() > 0) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                }
+            } else {
+                token.append(character);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    private static String join(List<String> tokens) {
+        StringBuilder result = new StringBuilder();
+        for (String token : tokens) {
+            if (result.length() > 0) {
+                result.append(' ');
+            }
+            result.append(token);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Return the option without one of its time elements (if it has many), or
+     * with one of its numbers replaced by 0, 1 or its half.
+     */
+    private static List<String> simplerOptions(String token) {
+        List<String> result = new ArrayList<String>();
+        if (token.startsWith("-f") || token.indexOf('-', 1) > 0) {
+            return result; // no number to reduce in the formats and date literals
+        }
+        boolean manyElements = countElements(token) > 1;
+        int start = -1;
+        for (int i = 0; i <= token.length(); i++) {
+            boolean digit = i < token.length() && Character.isDigit(token.charAt(i));
+            if (digit && start < 0) {
+                start = i;
+            } else if (!digit && start >= 0) {
+                if (manyElements && i < token.length()) {
+                    result.add(token.substring(0, start) + token.substring(i + 1));
+                }
+                long value = Long.parseLong(token.substring(start, i));
+                for (long smaller : new long[] { 0L, 1L, value / 2 }) {
+                    if (smaller < value) {
+                        result.add(token.substring(0, start) + smaller + token.substring(i));
+                    }
+                }
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    /** Count the time elements: the letters following a number. */
+    private static int countElements(String token) {
+        int count = 0;
+        for (int i = 1; i < token.length(); i++) {
+            if (!Character.isDigit(token.charAt(i)) && Character.isDigit(token.charAt(i - 1))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long mod(long value, long divisor) {
+        long remainder = value % divisor;
+        return (remainder < 0) ? remainder + divisor : remainder;
+    }
+
+    /**
+     * The result of a run.
+     */
+    public static final class Report {
+
+        /** The seed of the run. */
+        private final long seed;
+
+        /** The number of cases run. */
+        private long iterations;
+
+        /** The minimized counterexamples. */
+        private final List<String> failures = new ArrayList<String>();
+
+        private Report(long seed) {
+            this.seed = seed;
+        }
+
+        /**
+         * Return the number of cases run.
+         *
+         * @return the number of cases
+         */
+        public long getIterations() {
+            return iterations;
+        }
+
+        /**
+         * Return the minimized counterexamples.
+         *
+         * @return the counterexamples (empty if the engines always agreed)
+         */
+        public List<String> getFailures() {
+            return failures;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder();
+            result.append(iterations).append(" cases, seed ").append(seed)
+                .append(" (replay with -Dfuzz.seed=").append(seed).append(')');
+            for (String failure : failures) {
+                result.append("\n  ").append(failure);
+            }
+            return result.toString();
+        }
+    }
+}
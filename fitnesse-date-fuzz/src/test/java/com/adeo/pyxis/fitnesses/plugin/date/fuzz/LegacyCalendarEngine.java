@@ -0,0 +1,356 @@
+package com.adeo.pyxis.fitnesses.plugin.date.fuzz;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+/**
+ * The reference engine: a copy of the original rendering of the widgets,
+ * independent of the engine code. The options are parsed character by
+ * character for each rendering, the time is set, truncated or rounded, then
+ * added with a new calendar, and the date is formatted with a new
+ * <code>SimpleDateFormat</code>.
+ *
+ * The fixes of the engine are written out explicitly: the months are numbered
+ * from 1 in the time to set (5M is May), and the hours are the hours of the
+ * day (14h is 2 PM). The date literals are parsed and checked here, and the
+ * truncation and rounding are applied on the calendar fields of the local
+ * time: ~d sets the hour, the minute, the second and the millisecond to 0,
+ * ~15m sets the minute m to m - m % 15 and the lower fields to 0.
+ *
+ * The random dates are drawn with SplitMix64, written out as a generator:
+ * the state starts from the mixed seed and is advanced step by step up to
+ * the occurrence, where the engine calculates the state of the occurrence
+ * directly. The bounds are parsed again for each rendering.
+ */
+public final class LegacyCalendarEngine implements DifferentialFuzzer.Engine
+{
+    /** Default format of the date. */
+    private static final String DATE_PATTERN = "dd/MM/yyyy";
+
+    /** Default format of the date with the time (-t). */
+    private static final String DATETIME_PATTERN = "dd/MM/yyyy HH:mm";
+
+    /** The time elements, as in the options. */
+    private static final String LETTERS = "yMdhmsS";
+
+    /** The calendar fields of the time elements. */
+    private static final int[] FIELDS = {
+        Calendar.YEAR, Calendar.MONTH, Calendar.DAY_OF_MONTH, Calendar.HOUR_OF_DAY,
+        Calendar.MINUTE, Calendar.SECOND, Calendar.MILLISECOND
+    };
+
+    /** The units of the truncation and rounding, as in the options. */
+    private static final String ROUNDING_LETTERS = "dhmsS";
+
+    /** The calendar fields of the truncation and rounding units, from the largest. */
+    private static final int[] ROUNDING_FIELDS = {
+        Calendar.DAY_OF_MONTH, Calendar.HOUR_OF_DAY, Calendar.MINUTE, Calendar.SECOND, Calendar.MILLISECOND
+    };
+
+    /** The length of the truncation and rounding units in local time. */
+    private static final long[] ROUNDING_LENGTHS = { 24L * 3600000L, 3600000L, 60000L, 1000L, 1L };
+
+    /** The number of truncation and rounding units in the upper unit: the count must divide it. */
+    private static final int[] ROUNDING_UPPER_COUNTS = { 1, 24, 60, 60, 1000 };
+
+    /** Template of the longest date literal: d is a digit, the other characters are expected as is. */
+    private static final String LITERAL_TEMPLATE = "dddd-dd-ddTdd:dd:dd.ddd";
+
+    /** Increment of the state of SplitMix64 (2^64 divided by the golden ratio, odd). */
+    private static final long SPLITMIX_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** {@inheritDoc} */
+    public String getName() {
+        return "legacy calendar";
+    }
+
+    /** {@inheritDoc} */
+    public String render(String expression, long referenceMillis, long occurrence) {
+        boolean withTime = false;
+        SimpleDateFormat format = null;
+        String timeToSet = null;
+        String timeToAdd = null;
+        String literal = null;
+        String rounding = null;
+        boolean random = false;
+        long seed = 0L;
+        String from = "+";
+        String to = "+1y";
+
+        // The last option of each kind wins, but all the options are checked
+        for (String option : tokenize(expression)) {
+            if ("-t".equals(option)) {
+                withTime = true;
+            } else if (option.startsWith("-f")) {
+                String pattern = option.substring(2);
+                if (pattern.startsWith("\"")) {
+                    pattern = pattern.substring(1, pattern.length() - 1);
+                }
+                format = new SimpleDateFormat(pattern);
+            } else if (option.indexOf('=') > 0) {
+                String name = option.substring(0, option.indexOf('='));
+                String value = option.substring(option.indexOf('=') + 1);
+                if ("seed".equals(name)) {
+                    seed = Long.parseLong(value);
+                } else if ("from".equals(name)) {
+                    bound(value, referenceMillis);
+                    from = value;
+                } else if ("to".equals(name)) {
+                    bound(value, referenceMillis);
+                    to = value;
+                } else {
+                    throw new IllegalArgumentException(name + " is not a valid option");
+                }
+                random = true;
+            } else if (option.charAt(0) == '~' || option.charAt(0) == '^') {
+                parseRounding(option);
+                rounding = option;
+            } else if (option.startsWith("+") || option.startsWith("-")) {
+                parseTime(option.substring(1));
+                timeToAdd = option;
+            } else if (option.length() > 4 && isDigits(option, 0, 4) && option.charAt(4) == '-') {
+                parseLiteral(option);
+                literal = option;
+            } else {
+                parseTime(option);
+                timeToSet = option;
+            }
+        }
+
+        long start = (literal != null) ? parseLiteral(literal) : referenceMillis;
+        if (random) {
+            start = draw(seed, bound(from, start), bound(to, start), occurrence);
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(start);
+        if (timeToSet != null) {
+            int[] elements = parseTime(timeToSet);
+            for (int i = 0; i < elements.length; i += 2) {
+                int field = elements[i];
+                // Calendar.MONTH starts at 0 (January): 5M is May
+                calendar.set(field, (field == Calendar.MONTH) ? elements[i + 1] - 1 : elements[i + 1]);
+            }
+        }
+        if (rounding != null) {
+            round(calendar, rounding);
+        }
+        if (timeToAdd != null) {
+            add(calendar, timeToAdd);
+        }
+
+        if (format == null) {
+            format = new SimpleDateFormat(withTime ? DATETIME_PATTERN : DATE_PATTERN);
+        }
+        return format.format(calendar.getTime());
+    }
+
+    /** Add the time to add (+1d, -2h30m) on the calendar fields. */
+    private static void add(Calendar calendar, String timeToAdd) {
+        int factor = timeToAdd.startsWith("+") ? 1 : -1;
+        int[] elements = parseTime(timeToAdd.substring(1));
+        for (int i = 0; i < elements.length; i += 2) {
+            calendar.add(elements[i], factor * elements[i + 1]);
+        }
+    }
+
+    /**
+     * Return the bound of a random date: a date literal, or a time to add to
+     * the reference date.
+     */
+    private static long bound(String value, long referenceMillis) {
+        if (value.length() > 4 && isDigits(value, 0, 4) && value.charAt(4) == '-') {
+            return parseLiteral(value);
+        }
+        if (!value.startsWith("+") && !value.startsWith("-")) {
+            throw new IllegalArgumentException(value + " is not a valid bound");
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(referenceMillis);
+        add(calendar, value);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Draw the date of the occurrence between the bounds (included): the
+     * generator is seeded with the mixed seed, and its state is advanced once
+     * for each occurrence, the first one included. The output of the state is
+     * reduced to the bounds by a remainder, without sign.
+     */
+    private static long draw(long seed, long from, long to, long occurrence) {
+        long state = splitMix(seed);
+        for (long i = 0; i <= occurrence; i++) {
+            state += SPLITMIX_GAMMA;
+        }
+        long lower = Math.min(from, to);
+        long upper = Math.max(from, to);
+        long positive = splitMix(state) >>> 1;
+        return lower + positive % (upper - lower + 1);
+    }
+
+    /** The output function of SplitMix64 (variant 13 of the finalizer of MurmurHash3). */
+    private static long splitMix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Split the options on the white spaces, except between double quotes.
+     */
+    private static List<String> tokenize(String expression) {
+        List<String> options = new ArrayList<String>();
+        StringBuilder option = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < expression.length(); i++) {
+            char character = expression.charAt(i);
+            if (character == '"') {
+                quoted = !quoted;
+            }
+            if (Character.isWhitespace(character) && !quoted) {
+                if (option.length() > 0) {
+                    options.add(option.toString());
+                    option.setLength(0);
+                }
+            } else {
+                option.append(character);
+            }
+        }
+        if (option.length() > 0) {
+            options.add(option.toString());
+        }
+        return options;
+    }
+
+    /**
+     * Parse a time expression (2012y5M) character by character: the number
+     * before each letter is its value, the digits after the last letter are
+     * ignored.
+     *
+     * @return the calendar fields and their values, alternated
+     */
+    private static int[] parseTime(String expression) {
+        List<Integer> elements = new ArrayList<Integer>();
+        int number = 0;
+        for (int i = 0; i < expression.length(); i++) {
+            char character = expression.charAt(i);
+            if (Character.isDigit(character)) {
+                number = number * 10 + Character.digit(character, 10);
+            } else {
+                int letter = LETTERS.indexOf(character);
+                if (letter < 0) {
+                    throw new IllegalArgumentException(character + " is not a valid time element");
+                }
+                elements.add(Integer.valueOf(FIELDS[letter]));
+                elements.add(Integer.valueOf(number));
+                number = 0;
+            }
+        }
+        int[] result = new int[elements.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = elements.get(i).intValue();
+        }
+        return result;
+    }
+
+    /**
+     * Parse a date literal (yyyy-MM-dd[THH:mm[:ss[.SSS]]]) in the default
+     * time zone. The date must exist, the local time may not (it is resolved
+     * by the calendar around the changes of daylight saving time).
+     */
+    private static long parseLiteral(String literal) {
+        int length = literal.length();
+        if (length != 10 && length != 16 && length != 19 && length != 23) {
+            throw new IllegalArgumentException(literal + " is not a valid date");
+        }
+        for (int i = 0; i < length; i++) {
+            char expected = LITERAL_TEMPLATE.charAt(i);
+            if (expected == 'd' ? !isDigits(literal, i, i + 1) : literal.charAt(i) != expected) {
+                throw new IllegalArgumentException(literal + " is not a valid date");
+            }
+        }
+        int year = Integer.parseInt(literal.substring(0, 4));
+        int month = Integer.parseInt(literal.substring(5, 7));
+        int day = Integer.parseInt(literal.substring(8, 10));
+        int hour = (length > 10) ? Integer.parseInt(literal.substring(11, 13)) : 0;
+        int minute = (length > 10) ? Integer.parseInt(literal.substring(14, 16)) : 0;
+        int second = (length > 16) ? Integer.parseInt(literal.substring(17, 19)) : 0;
+        int millisecond = (length > 19) ? Integer.parseInt(literal.substring(20, 23)) : 0;
+
+        boolean leapYear = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        int[] days = { 31, leapYear ? 29 : 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+        if (month < 1 || month > 12 || day < 1 || day > days[month - 1]
+                || hour > 23 || minute > 59 || second > 59) {
+            throw new IllegalArgumentException(literal + " is not a valid date");
+        }
+
+        Calendar calendar = new GregorianCalendar();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        calendar.set(Calendar.MILLISECOND, millisecond);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Parse a truncation or rounding option (~15m, ^h).
+     *
+     * @return the index of the unit and the count
+     */
+    private static int[] parseRounding(String option) {
+        int unit = (option.length() > 1) ? ROUNDING_LETTERS.indexOf(option.charAt(option.length() - 1)) : -1;
+        String count = (option.length() > 2) ? option.substring(1, option.length() - 1) : "1";
+        if (unit < 0 || !isDigits(count, 0, count.length()) || count.length() > 9
+                || Integer.parseInt(count) == 0 || ROUNDING_UPPER_COUNTS[unit] % Integer.parseInt(count) != 0) {
+            throw new IllegalArgumentException(option + " is not a valid rounding");
+        }
+        return new int[] { unit, Integer.parseInt(count) };
+    }
+
+    /**
+     * Truncate ('~') or round to the nearest unit ('^') the local time, on
+     * the calendar fields: the field of the unit is set to a multiple of the
+     * count, the lower fields to 0. When the local time exists twice (end of
+     * the daylight saving time), the offset of the date is kept.
+     */
+    private static void round(Calendar calendar, String option) {
+        int[] rounding = parseRounding(option);
+        int unit = rounding[0];
+        int count = rounding[1];
+        int zoneOffset = calendar.get(Calendar.ZONE_OFFSET);
+        int dstOffset = calendar.get(Calendar.DST_OFFSET);
+
+        int value = calendar.get(ROUNDING_FIELDS[unit]);
+        long remainder = (value % count) * ROUNDING_LENGTHS[unit];
+        for (int i = unit + 1; i < ROUNDING_FIELDS.length; i++) {
+            remainder += calendar.get(ROUNDING_FIELDS[i]) * ROUNDING_LENGTHS[i];
+        }
+        for (int i = unit + 1; i < ROUNDING_FIELDS.length; i++) {
+            calendar.set(ROUNDING_FIELDS[i], 0);
+        }
+        value -= value % count;
+        if (option.charAt(0) == '^' && 2 * remainder >= count * ROUNDING_LENGTHS[unit]) {
+            value += count; // the calendar is lenient: the next day, hour... if out of range
+        }
+        calendar.set(ROUNDING_FIELDS[unit], value);
+
+        Calendar sameOffset = (Calendar) calendar.clone();
+        sameOffset.set(Calendar.ZONE_OFFSET, zoneOffset);
+        sameOffset.set(Calendar.DST_OFFSET, dstOffset);
+        long millis = sameOffset.getTimeInMillis();
+        if (calendar.getTimeZone().getOffset(millis) == zoneOffset + dstOffset) {
+            calendar.setTimeInMillis(millis);
+        }
+    }
+
+    private static boolean isDigits(String value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
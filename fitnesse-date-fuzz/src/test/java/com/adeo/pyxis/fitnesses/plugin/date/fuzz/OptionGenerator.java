@@ -0,0 +1,201 @@
+package com.adeo.pyxis.fitnesses.plugin.date.fuzz;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator of random options and reference dates, biased to the cases where
+ * the date calculations usually go wrong: the ends of the months, the 29th of
+ * February, the changes of the daylight saving time, the big shifts.
+ * Some generated options are invalid, to check that all the engines reject them.
+ */
+public final class OptionGenerator
+{
+    /** The time elements, as in the options. */
+    private static final char[] FIELDS = { 'y', 'M', 'd', 'h', 'm', 's', 'S' };
+
+    /** Maximum value set for each time element (the calendar is lenient). */
+    private static final int[] MAX_SET = { 2040, 13, 32, 24, 60, 60, 1000 };
+
+    /** Maximum value added for each time element. */
+    private static final int[] MAX_ADD = { 10, 30, 400, 100, 3000, 100000, 100000 };
+
+    /** The units of the truncation and rounding options. */
+    private static final char[] ROUNDING_UNITS = { 'd', 'h', 'm', 's', 'S', 'M' };
+
+    /** The counts of the truncation and rounding options, dividing the upper unit or not. */
+    private static final String[] ROUNDING_COUNTS = { "", "", "1", "2", "5", "6", "15", "30", "250", "7", "0" };
+
+    /** The random date options which are not valid. */
+    private static final String[] INVALID_RANDOM_OPTIONS = {
+        "seed=x", "seed=", "seed=99999999999999999999", "from=", "to=1d", "to=2024", "rate=1"
+    };
+
+    /** The explicit formats. */
+    private static final String[] FORMATS = {
+        "-fyyyy", "-f\"yyyy-MM-dd HH:mm:ss.SSS Z\"", "-f\"EEEE dd MMMM yyyy\"",
+        "-fD", "-f\"w W F u\"", "-f\"hh:mm a\"", "-f\"G yy KK kk\"", "-fddMMyyyy"
+    };
+
+    private final Random random;
+
+    /**
+     * Constructor.
+     *
+     * @param random the source of the random values
+     */
+    public OptionGenerator(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Return random options: time to set, time to add, date literal, random
+     * date, rounding, time and format options, in any order.
+     *
+     * @return the options
+     */
+    public String nextOptions() {
+        List<String> options = new ArrayList<String>();
+        if (random.nextInt(3) == 0) {
+            options.add(timeExpression(MAX_SET, 1 + random.nextInt(3)));
+        }
+        int adds = random.nextInt(3);
+        for (int i = 0; i < adds; i++) {
+            String sign = random.nextBoolean() ? "+" : "-";
+            options.add(sign + timeExpression(MAX_ADD, 1 + random.nextInt(3)));
+        }
+        if (random.nextInt(5) == 0) {
+            options.add(literal());
+        }
+        if (random.nextInt(5) == 0) {
+            options.addAll(randomDateOptions());
+        }
+        if (random.nextInt(4) == 0) {
+            options.add((random.nextBoolean() ? "~" : "^")
+                + ROUNDING_COUNTS[random.nextInt(ROUNDING_COUNTS.length)]
+                + ROUNDING_UNITS[random.nextInt(ROUNDING_UNITS.length)]);
+        }
+        if (random.nextBoolean()) {
+            options.add("-t");
+        }
+        if (random.nextInt(3) == 0) {
+            options.add(FORMATS[random.nextInt(FORMATS.length)]);
+        }
+        Collections.shuffle(options, random);
+
+        StringBuilder result = new StringBuilder();
+        for (String option : options) {
+            if (result.length() > 0) {
+                result.append(random.nextInt(10) == 0 ? "  " : " ");
+            }
+            result.append(option);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Return a random reference date, in the default time zone.
+     *
+     * @return the date in milliseconds since the epoch
+     */
+    public long nextReference() {
+        if (random.nextInt(10) == 0) {
+            // anywhere between 1900 and 2100
+            return (long) ((random.nextDouble() - 0.5) * 200L * 365L * 24L * 3600L * 1000L)
+                + 946684800000L;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        int year = 1995 + random.nextInt(45);
+        int month = random.nextInt(12);
+        calendar.set(year, month, 1);
+        int lastDay = calendar.getActualMaximum(Calendar.DAY_OF_MONTH);
+        int day;
+        switch (random.nextInt(4)) {
+            case 0: day = 1; break;
+            case 1: day = lastDay; break;
+            case 2: day = lastDay - random.nextInt(3); break;
+            default: day = 1 + random.nextInt(lastDay); break;
+        }
+        // around midnight and the usual hours of the changes of daylight saving time
+        int[] hours = { 0, 1, 2, 3, 23, random.nextInt(24) };
+        calendar.set(year, month, day, hours[random.nextInt(hours.length)],
+                random.nextInt(60), random.nextInt(60));
+        calendar.set(Calendar.MILLISECOND, random.nextInt(1000));
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Return a random occurrence of the widget in the page, used by the 
+     * random dates.
+     *
+     * @return the occurrence
+     */
+    public long nextOccurrence() {
+        return (random.nextInt(4) == 0) ? 0L : random.nextInt(1000);
+    }
+
+    /* Utility methods. */
+
+    /** Return the seed and the bounds of a random date, each one or not. */
+    private List<String> randomDateOptions() {
+        List<String> result = new ArrayList<String>();
+        if (random.nextBoolean()) {
+            switch (random.nextInt(3)) {
+                case 0: result.add("seed=" + random.nextInt(100)); break;
+                case 1: result.add("seed=-" + random.nextInt(100)); break;
+                default: result.add("seed=" + random.nextLong()); break;
+            }
+        }
+        if (random.nextBoolean()) {
+            result.add("from=" + bound());
+        }
+        if (random.nextBoolean()) {
+            result.add("to=" + bound());
+        }
+        if (result.isEmpty() || random.nextInt(20) == 0) {
+            result.add(INVALID_RANDOM_OPTIONS[random.nextInt(INVALID_RANDOM_OPTIONS.length)]);
+        }
+        return result;
+    }
+
+    /** Return a date literal or a time to add. */
+    private String bound() {
+        if (random.nextBoolean()) {
+            return literal();
+        }
+        String sign = random.nextBoolean() ? "+" : "-";
+        return sign + timeExpression(MAX_ADD, 1 + random.nextInt(2));
+    }
+
+    private String timeExpression(int[] max, int elements) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < elements; i++) {
+            int field = random.nextInt(FIELDS.length);
+            result.append(random.nextInt(max[field])).append(FIELDS[field]);
+        }
+        return result.toString();
+    }
+
+    private String literal() {
+        int year = 1995 + random.nextInt(45);
+        int month = 1 + random.nextInt(12);
+        int day = (month == 2 && random.nextBoolean()) ? 28 + random.nextInt(3) : 1 + random.nextInt(31);
+        String result = year + "-" + twoDigits(month) + "-" + twoDigits(day);
+        switch (random.nextInt(4)) {
+            case 0: return result;
+            case 1: return result + "T" + twoDigits(random.nextInt(24)) + ":" + twoDigits(random.nextInt(60));
+            case 2: return result + "T" + twoDigits(random.nextInt(24)) + ":" + twoDigits(random.nextInt(60))
+                + ":" + twoDigits(random.nextInt(60));
+            default: return result + "T" + twoDigits(random.nextInt(24)) + ":" + twoDigits(random.nextInt(60))
+                + ":" + twoDigits(random.nextInt(60)) + "." + twoDigits(random.nextInt(10)) + random.nextInt(10);
+        }
+    }
+
+    private static String twoDigits(int value) {
+        return (value < 10) ? "0" + value : String.valueOf(value);
+    }
+}
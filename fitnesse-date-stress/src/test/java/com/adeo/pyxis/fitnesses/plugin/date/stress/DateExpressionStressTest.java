@@ -0,0 +1,91 @@
+package com.adeo.pyxis.fitnesses.plugin.date.stress;
+
+import static org.junit.Assert.*;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.adeo.pyxis.fitnesses.plugin.date.DateExpression;
+
+/**
+ * Evaluate shared compiled expressions from many threads, each thread with
+ * different reference dates, to detect a state shared between the threads
+ * (calendar, formatter) which would corrupt the output.
+ */
+public class DateExpressionStressTest
+{
+    /** Expressions shared by all the threads. */
+    private static final String[] EXPRESSIONS = {
+        "", "-t", "+1M", "31d -t", "-1y2M", "2012y2M29d +1y",
+        "-f\"yyyy-MM-dd HH:mm:ss.SSS\"", "-fEEEE", "+36h -t", "-90m -fHH:mm:ss"
+    };
+
+    /** Number of reference dates. */
+    private static final int REFERENCES = 64;
+
+    @Test
+    public void testConcurrentEvaluations() throws Exception {
+        final DateExpression[] expressions = new DateExpression[EXPRESSIONS.length];
+        for (int i = 0; i < EXPRESSIONS.length; i++) {
+            expressions[i] = DateExpression.compile(EXPRESSIONS[i]);
+        }
+
+        // Reference dates spread on month ends and leap years
+        final long[] references = new long[REFERENCES];
+        final String[][] expected = new String[REFERENCES][EXPRESSIONS.length];
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2011, Calendar.JANUARY, 31, 23, 59, 59);
+        for (int r = 0; r < REFERENCES; r++) {
+            calendar.add(Calendar.DAY_OF_MONTH, 29);
+            calendar.add(Calendar.MINUTE, 37);
+            references[r] = calendar.getTimeInMillis();
+            for (int e = 0; e < EXPRESSIONS.length; e++) {
+                expected[r][e] = evaluateAlone(expressions[e], references[r]);
+            }
+        }
+
+        final StressHarness harness = new StressHarness();
+        List<String> failures = harness.run(new StressHarness.Scenario<String>() {
+
+            public void setUp(int round) {
+                // the expressions are shared by all the rounds
+            }
+
+            public String act(int thread) {
+                // each thread starts with a different reference date
+                for (int n = 0; n < REFERENCES; n++) {
+                    int r = (n + thread * REFERENCES / harness.getThreads()) % REFERENCES;
+                    for (int e = 0; e < EXPRESSIONS.length; e++) {
+                        String actual = expressions[e].evaluate(references[r]);
+                        if (!expected[r][e].equals(actual)) {
+                            return "(" + EXPRESSIONS[e] + ") rendered '" + actual 
+                                + "' instead of '" + expected[r][e] + "'";
+                        }
+                    }
+                }
+                return null;
+            }
+
+            public String check(List<String> results) {
+                for (String result : results) {
+                    if (result != null) {
+                        return result;
+                    }
+                }
+                return null;
+            }
+        });
+
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    /** Evaluate the expression without any object shared with other threads. */
+    private static String evaluateAlone(DateExpression expression, long reference) {
+        SimpleDateFormat format = new SimpleDateFormat(expression.getPattern());
+        return format.format(new Date(expression.evaluateMillis(reference)));
+    }
+}
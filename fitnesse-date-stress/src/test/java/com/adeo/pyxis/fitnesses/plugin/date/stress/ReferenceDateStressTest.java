@@ -0,0 +1,99 @@
+package com.adeo.pyxis.fitnesses.plugin.date.stress;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.adeo.pyxis.fitnesses.plugin.date.ReferenceDate;
+
+/**
+ * Stress the lazy initialization of the reference dates: in each round, the
+ * class <code>ReferenceDate</code> is loaded again in a new class loader and
+ * all the threads read the reference dates for the first time together.
+ * All the threads must see the same dates, and tomorrow/yesterday must be
+ * exactly one day after/before now.
+ */
+public class ReferenceDateStressTest
+{
+    @Test
+    public void testFirstUseFromManyThreads() throws Exception {
+        final URL location = ReferenceDate.class.getProtectionDomain()
+            .getCodeSource().getLocation();
+        // The rounds clear the published date: restore it for the next tests
+        String published = System.getProperty(ReferenceDate.PROPERTY);
+        List<String> failures;
+        try {
+            failures = runRounds(location);
+        } finally {
+            if (published == null) {
+                System.clearProperty(ReferenceDate.PROPERTY);
+            } else {
+                System.setProperty(ReferenceDate.PROPERTY, published);
+            }
+        }
+
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    private static List<String> runRounds(final URL location) throws Exception {
+        return new StressHarness().run(new StressHarness.Scenario<long[]>() {
+
+            private Object[] dates;
+            private Method getMillis;
+
+            public void setUp(int round) throws Exception {
+                // Read the clock again, not the date published by the previous round
+                System.clearProperty(ReferenceDate.PROPERTY);
+                // No parent: the engine classes are loaded again, not initialized
+                ClassLoader loader = new URLClassLoader(new URL[] { location }, null);
+                Class<?> type = loader.loadClass(ReferenceDate.class.getName());
+                dates = type.getEnumConstants();
+                getMillis = type.getMethod("getMillis");
+            }
+
+            public long[] act(int thread) throws Exception {
+                // Read in the reverse order for half of the threads
+                long[] result = new long[dates.length];
+                for (int i = 0; i < dates.length; i++) {
+                    int index = (thread % 2 == 0) ? i : dates.length - 1 - i;
+                    result[index] = ((Long) getMillis.invoke(dates[index])).longValue();
+                }
+                return result;
+            }
+
+            public String check(List<long[]> results) {
+                long[] first = results.get(0);
+                for (long[] result : results) {
+                    if (!Arrays.equals(first, result)) {
+                        return "torn reference dates " + Arrays.toString(first)
+                            + " / " + Arrays.toString(result);
+                    }
+                }
+                long now = first[ReferenceDate.NOW.ordinal()];
+                if (first[ReferenceDate.TOMORROW.ordinal()] != addDays(now, 1)) {
+                    return "tomorrow is not now + 1 day: " + Arrays.toString(first);
+                }
+                if (first[ReferenceDate.YESTERDAY.ordinal()] != addDays(now, -1)) {
+                    return "yesterday is not now - 1 day: " + Arrays.toString(first);
+                }
+                return null;
+            }
+        });
+    }
+
+    /* Utility methods used in assertions. */
+
+    private static long addDays(long millis, int days) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        calendar.add(Calendar.DAY_OF_MONTH, days);
+        return calendar.getTimeInMillis();
+    }
+}
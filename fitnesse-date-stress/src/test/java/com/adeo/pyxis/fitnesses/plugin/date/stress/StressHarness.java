@@ -0,0 +1,143 @@
+package com.adeo.pyxis.fitnesses.plugin.date.stress;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Minimal multi-threaded stress harness, in the spirit of jcstress:
+ * for each round, the same scenario is run by many threads released at the
+ * same time, then the results observed by all the threads are checked together.
+ *
+ * The number of threads and rounds are read from the system properties
+ * <code>stress.threads</code> and <code>stress.rounds</code>.
+ */
+public final class StressHarness
+{
+    /** Maximum number of failures reported. */
+    private static final int MAX_FAILURES = 10;
+
+    /**
+     * A scenario run concurrently.
+     *
+     * @param <R> the type of the result observed by each thread
+     */
+    public interface Scenario<R> {
+
+        /**
+         * Prepare the state shared by the threads for the round.
+         * Called by the main thread, before the threads are released.
+         *
+         * @param round the round number
+         * @throws Exception on error
+         */
+        void setUp(int round) throws Exception;
+
+        /**
+         * Run the scenario. Called concurrently by all the threads.
+         *
+         * @param thread the thread number
+         * @return the observed result
+         * @throws Exception on error
+         */
+        R act(int thread) throws Exception;
+
+        /**
+         * Check the results of all the threads for the round.
+         *
+         * @param results the results, by thread number
+         * @return an error message, or <code>null</code> if the results are valid
+         */
+        String check(List<R> results);
+    }
+
+    /** Number of concurrent threads. */
+    private final int threads;
+
+    /** Number of rounds. */
+    private final int rounds;
+
+    /** Constructor using the system properties. */
+    public StressHarness() {
+        this(Integer.getInteger("stress.threads", 8).intValue(),
+             Integer.getInteger("stress.rounds", 200).intValue());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param threads number of concurrent threads
+     * @param rounds number of rounds
+     */
+    public StressHarness(int threads, int rounds) {
+        this.threads = threads;
+        this.rounds = rounds;
+    }
+
+    /**
+     * Return the number of concurrent threads.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Run all the rounds of the scenario.
+     *
+     * @param scenario the scenario to run
+     * @return the failures (empty if the scenario always succeeded)
+     * @throws Exception if the harness is interrupted
+     */
+    public <R> List<String> run(final Scenario<R> scenario) throws Exception {
+        List<String> failures = new ArrayList<String>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < rounds && failures.size() < MAX_FAILURES; round++) {
+                scenario.setUp(round);
+
+                final CountDownLatch ready = new CountDownLatch(threads);
+                final CountDownLatch start = new CountDownLatch(1);
+                List<Future<R>> futures = new ArrayList<Future<R>>();
+                for (int t = 0; t < threads; t++) {
+                    final int thread = t;
+                    futures.add(executor.submit(new Callable<R>() {
+                        public R call() throws Exception {
+                            ready.countDown();
+                            start.await();
+                            return scenario.act(thread);
+                        }
+                    }));
+                }
+                ready.await();
+                start.countDown(); // release all the threads at the same time
+
+                List<R> results = new ArrayList<R>();
+                boolean failed = false;
+                for (int t = 0; t < threads; t++) {
+                    try {
+                        results.add(futures.get(t).get());
+                    } catch (ExecutionException e) {
+                        failures.add("round " + round + ", thread " + t + ": " + e.getCause());
+                        failed = true;
+                    }
+                }
+                if (!failed) {
+                    String error = scenario.check(results);
+                    if (error != null) {
+                        failures.add("round " + round + ": " + error);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return failures;
+    }
+}
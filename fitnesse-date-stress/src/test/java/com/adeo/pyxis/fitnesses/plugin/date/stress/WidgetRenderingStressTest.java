@@ -0,0 +1,147 @@
+package com.adeo.pyxis.fitnesses.plugin.date.stress;
+
+import static org.junit.Assert.*;
+
+import java.util.Calendar;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.adeo.pyxis.fitnesses.plugin.date.AbstractDateWidget;
+import com.adeo.pyxis.fitnesses.plugin.date.NowWidget;
+import com.adeo.pyxis.fitnesses.plugin.date.TomorrowWidget;
+import com.adeo.pyxis.fitnesses.plugin.date.YesterdayWidget;
+
+import fitnesse.wikitext.widgets.MockWidgetRoot;
+
+/**
+ * Render the widgets from many threads, as FitNesse does when pages are
+ * rendered concurrently. The output of each thread must be the same as the
+ * output of a single thread, and the today/tomorrow/yesterday pairs must 
+ * be consistent. The reference dates are rotated, each thread starting with
+ * a different one, so that the renderings are calculated and not only read
+ * from the results of the previous renderings.
+ */
+public class WidgetRenderingStressTest
+{
+    /** Widgets rendered by each thread. */
+    private static final String[] TEXTS = {
+        "!now", "!now(-t)", "!now(+1d)", "!now(-1d -t)", "!now(+1d -t)",
+        "!now(-f\"yyyy-MM-dd HH:mm:ss.SSS\")", "!now(2012y2M29d -fEEEE)",
+        "!now(2012y +1M3d -t)", "!now(-2h30m -fHH:mm)",
+        "!tomorrow", "!tomorrow(-t)", "!yesterday", "!yesterday(-t)"
+    };
+
+    /** Pairs of widgets which must render the same text. */
+    private static final String[][] SAME_OUTPUT = {
+        { "!now(+1d)", "!tomorrow" },
+        { "!now(+1d -t)", "!tomorrow(-t)" },
+        { "!now(-1d -t)", "!yesterday(-t)" }
+    };
+
+    /** Number of reference dates. */
+    private static final int REFERENCES = 64;
+
+    @Test
+    public void testConcurrentRendering() throws Exception {
+        // Reference dates spread on month ends and leap years
+        final long[] references = new long[REFERENCES];
+        final String[][] expected = new String[REFERENCES][];
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2011, Calendar.JANUARY, 31, 23, 59, 59);
+        for (int r = 0; r < REFERENCES; r++) {
+            calendar.add(Calendar.DAY_OF_MONTH, 29);
+            calendar.add(Calendar.MINUTE, 37);
+            references[r] = calendar.getTimeInMillis();
+            expected[r] = renderAll(references[r]);
+            for (String[] pair : SAME_OUTPUT) {
+                assertEquals(expected[r][indexOf(pair[0])], expected[r][indexOf(pair[1])]);
+            }
+        }
+
+        final StressHarness harness = new StressHarness();
+        List<String> failures = harness.run(new StressHarness.Scenario<String>() {
+
+            public void setUp(int round) {
+                // the widgets are created by the threads
+            }
+
+            public String act(int thread) throws Exception {
+                // each thread starts with a different reference date
+                for (int n = 0; n < REFERENCES; n++) {
+                    int r = (n + thread * REFERENCES / harness.getThreads()) % REFERENCES;
+                    String[] actual = renderAll(references[r]);
+                    for (int i = 0; i < TEXTS.length; i++) {
+                        if (!expected[r][i].equals(actual[i])) {
+                            return TEXTS[i] + " rendered '" + actual[i] 
+                                + "' instead of '" + expected[r][i] + "'";
+                        }
+                    }
+                }
+                return null;
+            }
+
+            public String check(List<String> results) {
+                for (String result : results) {
+                    if (result != null) {
+                        return result;
+                    }
+                }
+                return null;
+            }
+        });
+
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    /* Utility methods. */
+
+    private static String[] renderAll(long now) throws Exception {
+        String[] result = new String[TEXTS.length];
+        for (int i = 0; i < TEXTS.length; i++) {
+            result[i] = create(TEXTS[i], now).render();
+        }
+        return result;
+    }
+
+    /** Create the widget with the given current date instead of the published one. */
+    private static AbstractDateWidget create(String text, final long now) throws Exception {
+        if (text.startsWith("!now")) {
+            return new NowWidget(new MockWidgetRoot(), text) {
+                @Override
+                protected long getReferenceDate() {
+                    return now;
+                }
+            };
+        } else if (text.startsWith("!tomorrow")) {
+            return new TomorrowWidget(new MockWidgetRoot(), text) {
+                @Override
+                protected long getReferenceDate() {
+                    return addDays(now, 1);
+                }
+            };
+        }
+        return new YesterdayWidget(new MockWidgetRoot(), text) {
+            @Override
+            protected long getReferenceDate() {
+                return addDays(now, -1);
+            }
+        };
+    }
+
+    private static long addDays(long millis, int days) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        calendar.add(Calendar.DAY_OF_MONTH, days);
+        return calendar.getTimeInMillis();
+    }
+
+    private static int indexOf(String text) {
+        for (int i = 0; i < TEXTS.length; i++) {
+            if (TEXTS[i].equals(text)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(text);
+    }
+}
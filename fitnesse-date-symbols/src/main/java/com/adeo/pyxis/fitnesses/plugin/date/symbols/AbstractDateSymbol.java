@@ -0,0 +1,208 @@
+package com.adeo.pyxis.fitnesses.plugin.date.symbols;
+
+import java.util.List;
+
+import com.adeo.pyxis.fitnesses.plugin.date.DateExpression;
+import com.adeo.pyxis.fitnesses.plugin.date.ReferenceDate;
+
+import fitnesse.wikitext.parser.Matcher;
+import fitnesse.wikitext.parser.Maybe;
+import fitnesse.wikitext.parser.Parser;
+import fitnesse.wikitext.parser.Rule;
+import fitnesse.wikitext.parser.Symbol;
+import fitnesse.wikitext.parser.SymbolType;
+import fitnesse.wikitext.parser.Translation;
+import fitnesse.wikitext.parser.Translator;
+
+/**
+ * Parent class for the date symbols !now, !tomorrow, !yesterday, !date and
+ * !randomDate, for the 
+ * versions of Fitnesse using the symbol parser (the <code>WikiWidget</code> 
+ * classes are not supported anymore by theses versions).
+ * 
+ * The symbols have the same syntax and the same output as the widgets of the
+ * module fitnesse-date-widgets (read the documentation of 
+ * <code>AbstractDateWidget</code> for the list of available options):
+ * the options are parsed and evaluated by <code>DateExpression</code>.
+ * 
+ * !now(+1d -t)
+ * => 09/09/2011 09:54
+ * 
+ * The options have the same limits as the options of the widgets: at most 128
+ * units (a unit is a character, or a format enclosed in double quotes, of at
+ * most 64 characters), on one line. Longer options are not a symbol: the text
+ * is rendered as is.
+ * 
+ * @see DateExpression
+ * @see NowSymbol
+ * @see TomorrowSymbol
+ * @see YesterdaySymbol
+ * @see DateSymbol
+ * @see RandomDateSymbol
+ */
+public abstract class AbstractDateSymbol extends SymbolType implements Rule, Translation
+{
+    /** Name of the symbol property holding the options. */
+    private static final String OPTIONS = "Options";
+    
+    /** 
+     * Maximum number of units in the options, as the widgets (a unit is a 
+     * character, or a format enclosed in double quotes).
+     */
+    private static final int MAX_OPTIONS = 128;
+    
+    /** Maximum length of a format enclosed in double quotes, as the widgets. */
+    private static final int MAX_QUOTED_LENGTH = 64;
+    
+    /** Name of the symbol property holding the occurrence (if not 0). */
+    private static final String OCCURRENCE = "Occurrence";
+    
+    /* Publish the current date when Fitnesse registers the symbols (@see ReferenceDate). */
+    static {
+        try {
+            ReferenceDate.publish();
+        } catch (IllegalArgumentException e) {
+            // The class stays usable: the rendering of the symbols reports the error
+            System.err.println(AbstractDateSymbol.class.getName() + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Constructor for the subclasses.
+     * 
+     * @param name the name of the symbol type
+     * @param keyword the keyword following the '!' character in the pages
+     */
+    protected AbstractDateSymbol(String name, String keyword) {
+        super(name);
+        wikiMatcher(new Matcher().string("!" + keyword));
+        wikiRule(this);
+        htmlTranslation(this);
+    }
+    
+    /** 
+     * Return the reference date (the starting point for the date calculations). 
+     * 
+     * @return the reference date in milliseconds since the epoch
+     */
+    protected abstract long getReferenceDate();
+    
+    /**
+     * Compile the options. Subclasses could override this method to add
+     * default options.
+     * 
+     * @param options the options between the parenthesis (<code>null</code> 
+     *        if no option are given)
+     * @return the compiled options
+     * @throws IllegalArgumentException if the options are not valid
+     */
+    protected DateExpression compile(String options) {
+        return DateExpression.compile(options);
+    }
+    
+    /**
+     * Return the occurrence of the symbol being parsed, used to draw a random
+     * date. Called once for each symbol of the page, in the order of the page.
+     * 
+     * @param parser the parser of the page
+     * @return the occurrence (0 by default)
+     */
+    protected long nextOccurrence(Parser parser) {
+        return 0L;
+    }
+    
+    /** 
+     * Read the options enclosed in parenthesis, directly after the keyword. 
+     * When the options are not valid, the text is not considered as a symbol.
+     * 
+     * {@inheritDoc} 
+     */
+    public Maybe<Symbol> parse(Symbol current, Parser parser) {
+        List<Symbol> lookAhead = parser.peek(new SymbolType[] {SymbolType.OpenParenthesis});
+        if (!lookAhead.isEmpty()) {
+            parser.moveNext(1);
+            String options = parseOptions(parser);
+            if (options == null) {
+                return Symbol.nothing;
+            }
+            try {
+                compile(options);
+            } catch (IllegalArgumentException e) {
+                return Symbol.nothing;
+            }
+            current.putProperty(OPTIONS, options);
+        }
+        long occurrence = nextOccurrence(parser);
+        if (occurrence != 0L) {
+            current.putProperty(OCCURRENCE, String.valueOf(occurrence));
+        }
+        return new Maybe<Symbol>(current);
+    }
+    
+    /**
+     * Read the options up to the closing parenthesis, as the widgets: the
+     * parenthesis between double quotes (in a format) do not close the options.
+     * Ex: !now(-f"(dd) MM") => -f"(dd) MM"
+     * 
+     * The options are checked while they are read, each character once: the
+     * reading stops at the first line break, opening parenthesis out of the
+     * double quotes, or unit over the limits of the widgets (@see MAX_OPTIONS,
+     * MAX_QUOTED_LENGTH), instead of reading all the parenthesis of the page.
+     * 
+     * @param parser the parser, positioned after the opening parenthesis
+     * @return the options, or <code>null</code> if the options are not closed
+     *         or not within the limits
+     */
+    private static String parseOptions(Parser parser) {
+        StringBuilder options = new StringBuilder();
+        int units = 0;
+        // Length of the current format enclosed in double quotes, -1 out of the quotes
+        int quotedLength = -1;
+        while (true) {
+            String segment = parser.parseLiteral(SymbolType.CloseParenthesis);
+            if (parser.atEnd()) {
+                return null;
+            }
+            for (int i = 0; i < segment.length(); i++) {
+                char character = segment.charAt(i);
+                if (character == '\r' || character == '\n') {
+                    return null;
+                }
+                if (quotedLength >= 0) {
+                    if (character == '"') {
+                        quotedLength = -1;
+                    } else if (++quotedLength > MAX_QUOTED_LENGTH) {
+                        return null;
+                    }
+                } else if (character == '(') {
+                    return null;
+                } else {
+                    // a character, or the opening double quote of a format
+                    if (character == '"') {
+                        quotedLength = 0;
+                    }
+                    if (++units > MAX_OPTIONS) {
+                        return null;
+                    }
+                }
+            }
+            options.append(segment);
+            if (quotedLength < 0) {
+                return options.toString();
+            }
+            // the parenthesis is inside a quoted format: keep it and read further
+            options.append(')');
+            if (++quotedLength > MAX_QUOTED_LENGTH) {
+                return null;
+            }
+        }
+    }
+    
+    /** {@inheritDoc} */
+    public String toTarget(Translator translator, Symbol symbol) {
+        String options = symbol.hasProperty(OPTIONS) ? symbol.getProperty(OPTIONS) : null;
+        long occurrence = symbol.hasProperty(OCCURRENCE) 
+            ? Long.parseLong(symbol.getProperty(OCCURRENCE)) : 0L;
+        return compile(options).evaluate(getReferenceDate(), occurrence);
+    }
+}
@@ -0,0 +1,25 @@
+package com.adeo.pyxis.fitnesses.plugin.date.symbols;
+
+import com.adeo.pyxis.fitnesses.plugin.date.ReferenceDate;
+
+/**
+ * Display an absolute date, given as a date literal: !date(2024-01-31T10:00 +1M).
+ * Without date literal, the symbol displays the today date (as !now).
+ * Read the documentation for <code>AbstractDateSymbol</code> for examples and
+ * the detail of the symbol.
+ * 
+ * @see AbstractDateSymbol
+ */
+public class DateSymbol extends AbstractDateSymbol
+{
+    /** Default constructor, required by Fitnesse. */
+    public DateSymbol() {
+        super("Date", "date");
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected long getReferenceDate() {
+        return ReferenceDate.NOW.getMillis();
+    }
+}
@@ -0,0 +1,33 @@
+package com.adeo.pyxis.fitnesses.plugin.date.symbols;
+
+import fitnesse.plugins.PluginException;
+import fitnesse.plugins.PluginFeatureFactoryBase;
+import fitnesse.wikitext.parser.SymbolProvider;
+
+/**
+ * Register the date symbols in Fitnesse.
+ * The factory is discovered automatically when the jar is in the plugins
+ * directory (@see META-INF/services/fitnesse.plugins.PluginFeatureFactory).
+ * 
+ * The symbols can also be declared in the file plugins.properties:
+ * SymbolTypes=com.adeo.pyxis.fitnesses.plugin.date.symbols.NowSymbol,\
+ *   com.adeo.pyxis.fitnesses.plugin.date.symbols.TomorrowSymbol,\
+ *   com.adeo.pyxis.fitnesses.plugin.date.symbols.YesterdaySymbol,\
+ *   com.adeo.pyxis.fitnesses.plugin.date.symbols.DateSymbol,\
+ *   com.adeo.pyxis.fitnesses.plugin.date.symbols.RandomDateSymbol
+ * 
+ * The jar contains the classes of the module fitnesse-date-engine: it is the
+ * only jar to copy in the plugins directory of the wiki.
+ */
+public class DateSymbolsPluginFeatureFactory extends PluginFeatureFactoryBase
+{
+    /** {@inheritDoc} */
+    @Override
+    public void registerSymbolTypes(SymbolProvider symbolProvider) throws PluginException {
+        symbolProvider.add(new NowSymbol());
+        symbolProvider.add(new TomorrowSymbol());
+        symbolProvider.add(new YesterdaySymbol());
+        symbolProvider.add(new DateSymbol());
+        symbolProvider.add(new RandomDateSymbol());
+    }
+}
@@ -0,0 +1,24 @@
+package com.adeo.pyxis.fitnesses.plugin.date.symbols;
+
+import com.adeo.pyxis.fitnesses.plugin.date.ReferenceDate;
+
+/**
+ * Display the today date.
+ * Read the documentation for <code>AbstractDateSymbol</code> for examples and
+ * the detail of the symbol.
+ * 
+ * @see AbstractDateSymbol
+ */
+public class NowSymbol extends AbstractDateSymbol
+{
+    /** Default constructor, required by Fitnesse. */
+    public NowSymbol() {
+        super("Now", "now");
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected long getReferenceDate() {
+        return ReferenceDate.NOW.getMillis();
+    }
+}
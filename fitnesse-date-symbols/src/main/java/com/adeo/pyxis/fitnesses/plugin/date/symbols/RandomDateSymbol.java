@@ -0,0 +1,67 @@
+package com.adeo.pyxis.fitnesses.plugin.date.symbols;
+
+import com.adeo.pyxis.fitnesses.plugin.date.DateExpression;
+import com.adeo.pyxis.fitnesses.plugin.date.ReferenceDate;
+
+import fitnesse.wikitext.parser.Maybe;
+import fitnesse.wikitext.parser.Parser;
+import fitnesse.wikitext.parser.ParsingPage;
+
+/**
+ * Display a pseudo-random date, to generate pages with many rows of dates.
+ * Read the documentation for <code>AbstractDateSymbol</code> for examples and
+ * the detail of the symbol.
+ * 
+ * !randomDate(seed=42 from=2024-01-01 to=2024-12-31 -f"yyyy-MM-dd HH:mm")
+ * 
+ * The symbols of a page are numbered in the order of the page: the date
+ * drawn depends only on the seed, the bounds and this number, as for the 
+ * widget !randomDate of the module fitnesse-date-widgets (the same page gives
+ * the same dates with the widgets and with the symbols).
+ * 
+ * The number of the symbols is kept in a page variable whose name can not be
+ * used in a page (it contains a space): the name is reserved (@see OCCURRENCES).
+ * 
+ * @see AbstractDateSymbol
+ */
+public class RandomDateSymbol extends AbstractDateSymbol
+{
+    /** 
+     * Page variable counting the symbols already parsed for the page. The
+     * space in the name prevents any collision with the variables of the user
+     * (!define and ${...} only accept names without spaces).
+     */
+    private static final String OCCURRENCES = "!randomDate occurrences";
+    
+    /** Default constructor, required by Fitnesse. */
+    public RandomDateSymbol() {
+        super("RandomDate", "randomDate");
+    }
+    
+    /** 
+     * Draw a random date even if no random option is given.
+     * 
+     * {@inheritDoc} 
+     */
+    @Override
+    protected DateExpression compile(String options) {
+        return DateExpression.compile((options == null) ? "seed=0" : "seed=0 " + options);
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected long nextOccurrence(Parser parser) {
+        // The variables are kept by the page being parsed
+        ParsingPage page = parser.getPage();
+        Maybe<String> count = page.findVariable(OCCURRENCES);
+        long occurrence = count.isNothing() ? 0L : Long.parseLong(count.getValue());
+        page.putVariable(OCCURRENCES, String.valueOf(occurrence + 1));
+        return occurrence;
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected long getReferenceDate() {
+        return ReferenceDate.NOW.getMillis();
+    }
+}
@@ -0,0 +1,24 @@
+package com.adeo.pyxis.fitnesses.plugin.date.symbols;
+
+import com.adeo.pyxis.fitnesses.plugin.date.ReferenceDate;
+
+/**
+ * Display the yesterday date.
+ * Read the documentation for <code>AbstractDateSymbol</code> for examples and
+ * the detail of the symbol.
+ * 
+ * @see AbstractDateSymbol
+ */
+public class YesterdaySymbol extends AbstractDateSymbol
+{
+    /** Default constructor, required by Fitnesse. */
+    public YesterdaySymbol() {
+        super("Yesterday", "yesterday");
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected long getReferenceDate() {
+        return ReferenceDate.YESTERDAY.getMillis();
+    }
+}
@@ -0,0 +1,136 @@
+package com.adeo.pyxis.fitnesses.plugin.date.symbols;
+
+import static org.junit.Assert.*;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adeo.pyxis.fitnesses.plugin.date.DateExpression;
+import com.adeo.pyxis.fitnesses.plugin.date.ReferenceDate;
+
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.WikiPage;
+import fitnesse.wiki.WikiPageUtil;
+import fitnesse.wiki.fs.InMemoryPage;
+import fitnesse.wikitext.parser.SymbolProvider;
+import fitnesse.wikitext.parser.SymbolType;
+
+/**
+ * Test the symbols '!now', '!tomorrow', '!yesterday', '!date' and '!randomDate'
+ * through the parser of Fitnesse: the symbols are registered as by the plugin
+ * loader, and the pages are rendered in HTML.
+ */
+public class DateSymbolTest
+{
+    /** Symbols registered once in the parser of Fitnesse. */
+    private static boolean registered = false;
+
+    /* Commons variables used in assertions. (@see setUp) */
+
+    private WikiPage root;
+    private Calendar cNow;
+    private Calendar cTomorrow;
+
+    @Before
+    public void setUp() throws Exception {
+        if (!registered) {
+            new DateSymbolsPluginFeatureFactory().registerSymbolTypes(SymbolProvider.wikiParsing);
+            registered = true;
+        }
+        root = InMemoryPage.makeRoot("RooT");
+        cNow = ReferenceDate.NOW.getCalendar();
+        cTomorrow = ReferenceDate.TOMORROW.getCalendar();
+    }
+
+    @Test
+    public void testNowWithOptions() throws Exception {
+        cNow.add(Calendar.DAY_OF_MONTH, 1);
+        assertRenders(format("dd/MM/yyyy HH:mm", cNow), "!now(+1d -t)");
+    }
+
+    @Test
+    public void testTomorrowWithoutOption() throws Exception {
+        assertRenders(format("dd/MM/yyyy", cTomorrow), "!tomorrow");
+    }
+
+    @Test
+    public void testFormatWithParenthesis() throws Exception {
+        assertRenders(format("(dd) MM", cNow), "!now(-f\"(dd) MM\")");
+        assertRenders(format("(dd) MM HH:mm", cTomorrow) + " and", "!tomorrow(-f\"(dd) MM HH:mm\") and");
+    }
+
+    @Test
+    public void testRandomDatesAreNumberedInThePage() throws Exception {
+        String options = "seed=42 from=2024-01-01 to=2024-12-31 -f\"yyyy-MM-dd HH:mm\"";
+        // The same dates as the widgets: the occurrences are numbered from 0 in the page
+        DateExpression expression = DateExpression.compile("seed=0 " + options);
+        String expected = expression.evaluate(0L, 0L) + " " + expression.evaluate(0L, 1L);
+        String text = "!randomDate(" + options + ") !randomDate(" + options + ")";
+        assertRenders(expected, text);
+        assertRenders(expected, text);
+    }
+
+    @Test
+    public void testInvalidOptionIsNotASymbol() throws Exception {
+        assertRenders("!now(+1x)", "!now(+1x)");
+    }
+
+    @Test
+    public void testUnclosedOptionsAreNotASymbol() throws Exception {
+        assertRenders("!now(-t", "!now(-t");
+    }
+
+    @Test
+    public void testOptionsOutOfTheLimitsAreNotASymbol() throws Exception {
+        // 128 units are accepted, not 130
+        StringBuilder options = new StringBuilder();
+        for (int i = 0; i < 32; i++) {
+            options.append("+0d ");
+        }
+        assertRenders(format("dd/MM/yyyy", cNow) + ".", "!now(" + options + ").");
+        assertRenders("!now(" + options + "-t)", "!now(" + options + "-t)");
+        assertRenders("!now(-f\"" + options + "\")", "!now(-f\"" + options + "\")");
+        assertRenders("!now(-t\n)", "!now(-t\n)");
+        assertRenders("!now((-t))", "!now((-t))");
+    }
+
+    @Test
+    public void testCurrentDatePublishedBeforeRendering() throws Exception {
+        String property = System.getProperty(ReferenceDate.PROPERTY);
+        System.clearProperty(ReferenceDate.PROPERTY);
+        try {
+            // Load the symbols in a new class loader, as a new wiki server does, without rendering them
+            ClassLoader loader = new URLClassLoader(new URL[] { location(NowSymbol.class),
+                    location(ReferenceDate.class), location(SymbolType.class) }, null);
+            Class.forName(NowSymbol.class.getName(), true, loader);
+            assertNotNull(System.getProperty(ReferenceDate.PROPERTY));
+        } finally {
+            if (property == null) {
+                System.clearProperty(ReferenceDate.PROPERTY);
+            } else {
+                System.setProperty(ReferenceDate.PROPERTY, property);
+            }
+        }
+    }
+
+    /* Utility methods used in assertions. */
+
+    private void assertRenders(String expected, String content) throws Exception {
+        WikiPage page = WikiPageUtil.addPage(root, PathParser.parse("DatePage"), content);
+        String html = page.getHtml();
+        assertTrue(content + " rendered as " + html, html.contains(expected));
+    }
+
+    private static URL location(Class<?> type) {
+        return type.getProtectionDomain().getCodeSource().getLocation();
+    }
+
+    private static String format(String pattern, Calendar calendar) {
+        return new SimpleDateFormat(pattern).format(calendar.getTime());
+    }
+}
@@ -0,0 +1,229 @@
+
+package com.adeo.pyxis.fitnesses.plugin.date;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import fitnesse.wikitext.WikiWidget;
+import fitnesse.wikitext.widgets.ParentWidget;
+
+/**
+ * Parent class for the date widget !now, !tomorrow, !yesterday.
+ * The widgets have the same options and the same behaviour, except that the
+ * reference date is different for each widget (!now will use the current date
+ * but !tomorrow will use the current date + 1 day).
+ * 
+ * Why not use the widget !today, available with Fitnesse ?
+ * 
+ * - The widget is currently bugged: you can not use the format option because 
+ *   the regex is greedy (https://github.com/unclebob/fitnesse/issues/42).
+ * - You can just add/subtract days to the date
+ * - You can not override a time field (like the year for example). For that,
+ *   you should add the correct number of days (caution with leap year...).
+ * - The time is not constant between two use of the widget.
+ *   (can be a problem in some cases)
+ *   Ex: !today -t some text between the two calls !today -t
+ *   =>  08 Sep, 2011 09:54 some text between the two calls 08 Sep, 2011 09:54
+ *   According to the current time, you could also have :  
+ *   =>  08 Sep, 2011 09:54 some text between the two calls 08 Sep, 2011 09:55
+ *   Note the difference between the two date (09h54/09h55)
+ *   Will the !now widget, the same use of the widget give always the same
+ *   time (for the current page of course, the time will be different on the next
+ *   fixture page)
+ *   Ex: !now(-t) and !now(-t) always render '08/09/2011 09:54 and 08/09/2011 09:54'  
+ * 
+ * How to use the widgets ?
+ * (for the example, we consider the today date is September, 8th 2011)
+ * 
+ * !today
+ * => 08/09/2011 (the time is not included by default)
+ * 
+ * !today(-t)
+ * => 08/09/2011 09:54 (with time enable, only the hours and minutes are displayed)
+ * 
+ * Important: the widget will be used in inline mode in your fixtures. So, the options
+ * should be specified in parenthesis to avoid confusion like that :
+ * !today 8h => should we print 08/09/2011 -t or 08/09/2011 08:00 ?
+ * With the use of parenthesis, the syntax is unambiguous :
+ * !today 8h will print 08/09/2011 8h
+ * !today(8h) will print 08/09/2011 08:00
+ * The options are limited to 128 units (a unit is a character, or a format 
+ * enclosed in double quotes, of at most 64 characters), on one line. Longer
+ * options are not recognized: the widget renders the date without option,
+ * followed by the text of the options.
+ * !today(-t ...200 characters...) will print 08/09/2011(-t ...200 characters...)
+ * 
+ * !today(+1d)
+ * => 09/09/2011 (you could add or subtract time elements, just pass a option with
+ * the following format (+|-)(\d+[yMdhmsS])+ where: 
+ * y: year, M: month, d: day, h: hour, m: minute, s: second, S: millisecond) 
+ * 
+ * More example to illustrate this option:
+ * !today(+1y6M) => 08/03/2013 (one year and 6 months later)
+ * !today(+7d4h -t) => 15/09/2011 13h53
+ * 
+ * !today(2012y) 
+ * => 08/09/2012 (you could override time elements, the option has the same format 
+ * as the option to add time without the leading operator)
+ * 
+ * !today(2012y5M)
+ * => 08/05/2012 (you can combine time elements)
+ * 
+ * !today(2012y +1m -t)
+ * => 08/10/2012 09:54 (and you can combine all options)
+ *    
+ * !today(~d -t)
+ * => 08/09/2011 00:00 (you can truncate the date with '~' or round it to the
+ * nearest unit with '^', with the format (~|^)(\d*[dhmsS]), after the time to 
+ * set and before the time to add, whatever the order of the options; the count 
+ * must divide the upper unit: ~15m or ~6h, but not ~7m)
+ * !today(~15m -t) => 08/09/2011 09:45
+ * !today(^h -t) => 08/09/2011 10:00
+ * !today(+1d ~d -f"yyyy-MM-dd HH:mm") => 2011-09-09 00:00
+ * !today(~d +8h -t) => 08/09/2011 08:00
+ *    
+ * !today(-fYYYY)
+ * => 2011 (you can choose a custom date format (@see SimpleDateFormat for the
+ * allowing formats)
+ * 
+ * !today(-f"yyyy/MM/dd hh:mm:ss:SS")
+ * => 2011/09/08 09:54:55:21 (if the format contains spaces, enclosed it in double quotes) 
+ * 
+ * !today(2024-01-31T10:00 +1M -t)
+ * => 29/02/2024 10:00 (you can replace the reference date by a date literal,
+ * with the format yyyy-MM-dd[THH:mm[:ss[.SSS]]])
+ * 
+ * For convenience purpose, you can use the other widgets: 
+ * !today(+1d) is the same as !tomorrow
+ * !today(-1d) is the same as !yesterday
+ * !date(2024-01-31) is the same as !today(2024-01-31) 
+ * 
+ * !randomDate(seed=42 from=2024-01-01 to=+1y -t)
+ * => a random date between the 1st of January 2024 and one year after the
+ * reference date. The date depends only on the seed, the bounds and the
+ * occurrence of the widget in the page. The bounds are date literals or times
+ * to add to the reference date. By default: seed=0 from=+0d to=+1y
+ * Only with date literals for both bounds, the page always gives the same 
+ * dates: relative bounds (as the default bounds) move with the current date.
+ * 
+ * The calculation of the date is delegated to <code>DateExpression</code>,
+ * which fixtures can use to compute the same dates as the wiki pages.
+ * The reference dates are shared by all the pages, and can be handed over to
+ * the test systems so the fixtures use the same current date (@see ReferenceDate).
+ * The jar of the widgets contains the classes of the module fitnesse-date-engine:
+ * it is the only jar to add to the class path of the wiki.
+ * 
+ * @see DateExpression
+ * @see NowWidget
+ * @see DateWidget
+ * @see RandomDateWidget
+ * @see YesterdayWidget
+ * @see TomorrowWidget
+ * 
+ * @author Julien Sobczak
+ */
+public abstract class AbstractDateWidget extends WikiWidget
+{
+    /** 
+     * Maximum number of units in the options part recognized by the regex
+     * (a unit is a character, or a format enclosed in double quotes).
+     */
+    private static final int MAX_OPTIONS = 128;
+    
+    /** Maximum length of a format enclosed in double quotes. */
+    private static final int MAX_QUOTED_LENGTH = 64;
+    
+    /** 
+     * Regex suffix: the same for all widgets. The suffix matches the options part.
+     * 
+     * The options are characters other than parenthesis, double quotes and line 
+     * breaks, or formats enclosed in double quotes (a quoted format may contain
+     * parenthesis: !now(-f"(dd/MM)")). Fitnesse tries the regex of all the widgets
+     * everywhere in the page, so the quantifiers are bounded and possessive: the
+     * regex never backtracks and never reads more than MAX_OPTIONS units after the
+     * keyword, whatever the length of the line (with a lazy suffix like 
+     * "(?:[(](.*?)[)])?", each !now( without closing parenthesis read the line 
+     * up to its end).
+     */
+    protected static final String REGEXP_SUFFIX = 
+        "(?:[(]((?:[^()\"\\r\\n]|\"[^\"\\r\\n]{0," + MAX_QUOTED_LENGTH 
+        + "}+\"){0," + MAX_OPTIONS + "}+)[)])?";
+    
+    /* Publish the current date when Fitnesse loads the widgets (@see ReferenceDate). */
+    static {
+        try {
+            ReferenceDate.publish();
+        } catch (IllegalArgumentException e) {
+            // The class stays usable: the rendering of the widgets reports the error
+            System.err.println(AbstractDateWidget.class.getName() + ": " + e.getMessage());
+        }
+    }
+    
+    /** The matched text by Fitnesse. */
+    private String text;
+    
+    /** The options given, compiled. */
+    private DateExpression expression = null;
+    
+    /** {@inheritDoc} */
+    public AbstractDateWidget(ParentWidget parent, String text) throws Exception {
+        super(parent);
+        this.text = text;
+        init();
+    }
+    
+    /** Return the pattern of the widget. */
+    protected abstract Pattern getPattern();
+    
+    /** 
+     * Return the reference date (the starting point for the date calculations)
+     * in milliseconds since the epoch.
+     */
+    protected abstract long getReferenceDate();
+   
+    /** Utility method. Subclasses could use this method to build the regex. */
+    protected static String formatRegex(final String keyword) {
+        return "!" + keyword + REGEXP_SUFFIX;
+    }
+    
+    /**
+     * Initialize the widget (options parsing).
+     */
+    private void init() {
+        Matcher match = getPattern().matcher(text);
+        if (!match.find()) {
+            System.err.println(this.getClass().getName() 
+                    + ": match was not found, text = '" + text + "'");
+            return;
+        } 
+        String optionsStr = match.group(1);
+        this.expression = compile(optionsStr);
+    }
+    
+    /**
+     * Compile the options. Subclasses could override this method to add
+     * default options.
+     * 
+     * @param optionsStr the options between the parenthesis (<code>null</code> 
+     *        if no option are given)
+     * @return the compiled options
+     */
+    protected DateExpression compile(String optionsStr) {
+        return DateExpression.compile(optionsStr);
+    }
+    
+    /**
+     * Return the occurrence of the widget, used to draw a random date.
+     * 
+     * @return the occurrence (0 by default)
+     */
+    protected long getOccurrence() {
+        return 0L;
+    }
+    
+    
+    /** {@inheritDoc} */
+    public String render() throws Exception {
+        return expression.evaluate(getReferenceDate(), getOccurrence());
+    }
+}
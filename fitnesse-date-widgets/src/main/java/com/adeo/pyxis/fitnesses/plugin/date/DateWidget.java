@@ -0,0 +1,43 @@
+package com.adeo.pyxis.fitnesses.plugin.date;
+
+import java.util.regex.Pattern;
+
+import fitnesse.wikitext.widgets.ParentWidget;
+
+/**
+ * Display an absolute date, given as a date literal.
+ * Read the documentation for <code>AbstractDateWidget</code> for examples and
+ * the detail of the widget.
+ * 
+ * !date(2024-01-31T10:00 +1M -t)
+ * => 29/02/2024 10:00
+ * 
+ * Without date literal, the widget displays the today date (as !now).
+ * 
+ * @see AbstractDateWidget (list of available options)
+ */
+public class DateWidget extends AbstractDateWidget
+{
+    /** Required for Fitnesse. */
+    public static final String REGEXP = formatRegex("date");
+    
+    /** Common field on widget. */
+    public static final Pattern PATTERN = Pattern.compile(REGEXP);
+    
+    /** {@inheritDoc} */
+    public DateWidget(ParentWidget parent, String text) throws Exception {
+        super(parent, text);
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected long getReferenceDate() {
+        return ReferenceDate.NOW.getMillis();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Pattern getPattern() {
+        return PATTERN;
+    }
+}
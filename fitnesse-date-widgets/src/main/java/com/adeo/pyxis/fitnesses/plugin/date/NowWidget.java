@@ -1,6 +1,5 @@
 package com.adeo.pyxis.fitnesses.plugin.date;
 
-import java.util.Calendar;
 import java.util.regex.Pattern;
 
 import fitnesse.wikitext.widgets.ParentWidget;
@@ -19,9 +18,6 @@ import fitnesse.wikitext.widgets.ParentWidget;
  */
 public class NowWidget extends AbstractDateWidget
 {
-    /** Singleton to keep the same date between all the calls. */
-    private static Calendar dateInstance = null; 
-
     /** Required for Fitnesse. */
     public static final String REGEXP = formatRegex("now");
     
@@ -35,11 +31,8 @@ public class NowWidget extends AbstractDateWidget
     
     /** {@inheritDoc} */
     @Override
-    protected Calendar getReferenceDate() {
-        if (dateInstance == null) {
-            dateInstance = today();
-        }
-        return dateInstance;
+    protected long getReferenceDate() {
+        return ReferenceDate.NOW.getMillis();
     }
 
     /** {@inheritDoc} */
@@ -0,0 +1,79 @@
+package com.adeo.pyxis.fitnesses.plugin.date;
+
+import java.util.regex.Pattern;
+
+import fitnesse.wikitext.widgets.ParentWidget;
+
+/**
+ * Display a pseudo-random date, to generate pages with many rows of dates.
+ * Read the documentation for <code>AbstractDateWidget</code> for examples and
+ * the detail of the widget.
+ * 
+ * !randomDate(seed=42 from=2024-01-01 to=2024-12-31 -f"yyyy-MM-dd HH:mm")
+ * 
+ * The widgets of a page are numbered in the order of the page: the date
+ * drawn depends only on the seed, the bounds and this number. With date
+ * literals as bounds (from and to), the page always gives the same dates,
+ * whatever the day of the run, the server or the thread. With relative bounds
+ * (the default bounds, from=+0d to=+1y), the dates move with the current date.
+ * 
+ * The number of the widgets is kept in a page variable whose name can not be
+ * used in a page (it contains a space): the name is reserved (@see OCCURRENCES).
+ * 
+ * @see AbstractDateWidget (list of available options)
+ */
+public class RandomDateWidget extends AbstractDateWidget
+{
+    /** 
+     * Page variable counting the widgets already created for the page. The
+     * space in the name prevents any collision with the variables of the user
+     * (!define and ${...} only accept names without spaces).
+     */
+    private static final String OCCURRENCES = "!randomDate occurrences";
+    
+    /** Required for Fitnesse. */
+    public static final String REGEXP = formatRegex("randomDate");
+    
+    /** Common field on widget. */
+    public static final Pattern PATTERN = Pattern.compile(REGEXP);
+    
+    /** Number of the widget in the page. */
+    private long occurrence;
+    
+    /** {@inheritDoc} */
+    public RandomDateWidget(ParentWidget parent, String text) throws Exception {
+        super(parent, text);
+        // The variables are kept by the root of the page being rendered
+        String count = parent.getVariable(OCCURRENCES);
+        occurrence = (count == null) ? 0L : Long.parseLong(count);
+        parent.addVariable(OCCURRENCES, String.valueOf(occurrence + 1));
+    }
+    
+    /** 
+     * Draw a random date even if no random option is given.
+     * 
+     * {@inheritDoc} 
+     */
+    @Override
+    protected DateExpression compile(String optionsStr) {
+        return DateExpression.compile((optionsStr == null) ? "seed=0" : "seed=0 " + optionsStr);
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected long getOccurrence() {
+        return occurrence;
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    protected long getReferenceDate() {
+        return ReferenceDate.NOW.getMillis();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Pattern getPattern() {
+        return PATTERN;
+    }
+}
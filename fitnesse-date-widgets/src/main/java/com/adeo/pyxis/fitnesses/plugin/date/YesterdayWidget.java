@@ -1,6 +1,5 @@
 package com.adeo.pyxis.fitnesses.plugin.date;
 
-import java.util.Calendar;
 import java.util.regex.Pattern;
 
 import fitnesse.wikitext.widgets.ParentWidget;
@@ -15,9 +14,6 @@ import fitnesse.wikitext.widgets.ParentWidget;
  */
 public class YesterdayWidget extends AbstractDateWidget
 {
-    /** Singleton to keep the same date between all the calls. */
-    public static Calendar dateInstance = null; 
-    
     /** Required for Fitnesse. */
     public static final String REGEXP = formatRegex("yesterday");
     
@@ -31,12 +27,8 @@ public class YesterdayWidget extends AbstractDateWidget
 
     /** {@inheritDoc} */
     @Override
-    protected Calendar getReferenceDate() {
-        if (dateInstance == null) {
-            dateInstance = today();
-            dateInstance.add(Calendar.DAY_OF_MONTH, -1);
-        }
-        return dateInstance;
+    protected long getReferenceDate() {
+        return ReferenceDate.YESTERDAY.getMillis();
     }
 
     /** {@inheritDoc} */
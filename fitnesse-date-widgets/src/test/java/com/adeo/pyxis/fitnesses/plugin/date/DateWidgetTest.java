@@ -0,0 +1,284 @@
+package com.adeo.pyxis.fitnesses.plugin.date;
+
+import static org.junit.Assert.*;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fitnesse.wikitext.WikiWidget;
+import fitnesse.wikitext.widgets.MockWidgetRoot;
+
+/**
+ * Test the widgets '!now', '!tomorrow' and '!yesterday'.
+ * We test theses widgets in the same class because they share the same
+ * parent class and very few code is specific for each widget.
+ * 
+ * @author Julien Sobczak
+ */
+public class DateWidgetTest
+{
+    /* Commons variables used in assertions. (@see setUp) */
+    
+    private Calendar cNow; 
+    private Date now;
+    private Calendar cTomorrow; 
+    private Date tomorrow;
+    private Calendar cYesterday; 
+    private Date yesterday;
+    
+    @Before
+    public void setUp() {
+        cNow = Calendar.getInstance();
+        now = cNow.getTime();
+        
+        cTomorrow = Calendar.getInstance();
+        cTomorrow.add(Calendar.DAY_OF_MONTH, 1);
+        tomorrow = cTomorrow.getTime();
+        
+        cYesterday = Calendar.getInstance();
+        cYesterday.add(Calendar.DAY_OF_MONTH, -1);
+        yesterday = cYesterday.getTime();
+    }
+    
+    @Test
+    public void testNowWithoutOption() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now");
+        assertEquals(formatDate(now), widget.render());
+    }
+    
+    @Test
+    public void testNowWithTimeOption() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now(-t)");
+        assertEquals(formatDatetime(now), widget.render());
+    }
+    
+    @Test
+    public void testNowWithFormatOption() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now(-fyyyy)");
+        assertEquals(String.valueOf(cNow.get(Calendar.YEAR)), widget.render());
+    }
+    
+    @Test
+    public void testNowWithExtraSpace() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now( -t  )");
+        assertEquals(formatDatetime(now), widget.render());
+    }
+    
+    @Test
+    public void testFormatWithParenthesis() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now(-f\"(yyyy) dd\")");
+        assertEquals(new SimpleDateFormat("(yyyy) dd").format(now), widget.render());
+    }
+    
+    @Test
+    public void testFormatWithManySpaces() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now(-f\"dd MM  yyyy\" -t)");
+        assertEquals(new SimpleDateFormat("dd MM  yyyy").format(now), widget.render());
+    }
+    
+    @Test
+    public void testUnclosedOptionsAreIgnored() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now(-t");
+        assertEquals(formatDate(now), widget.render());
+    }
+    
+    @Test
+    public void setAFixedYear() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now(2012y)");
+        cNow.set(Calendar.YEAR, 2012);
+        assertEquals(formatDate(cNow), widget.render());
+    }
+    
+    @Test
+    public void setManyFields() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now(2012y12M)");
+        cNow.set(Calendar.YEAR, 2012);
+        cNow.set(Calendar.MONTH, Calendar.DECEMBER); // the months start at 1M
+        assertEquals(formatDate(cNow), widget.render());
+    }
+    
+    @Test
+    public void useMultipleOptions() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now(2012y -t)");
+        cNow.set(Calendar.YEAR, 2012);
+        assertEquals(formatDatetime(cNow), widget.render());
+    }
+    
+    @Test
+    public void assertOptionsOrderIsNotRelevant() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now(-t 2012y)");
+        cNow.set(Calendar.YEAR, 2012);
+        assertEquals(formatDatetime(cNow), widget.render());
+    }
+    
+    @Test
+    public void useMultipleOptionsWithExtraSpaces() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now( 2012y  -t )");
+        cNow.set(Calendar.YEAR, 2012);
+        assertEquals(formatDatetime(cNow), widget.render());
+    }
+    
+    @Test
+    public void addOneDay() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now(+1d)");
+        cNow.add(Calendar.DAY_OF_MONTH, 1);
+        assertEquals(formatDate(cNow), widget.render());
+    }
+    
+    @Test
+    public void addOneDayAnd3Hours() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now(+1d3h)");
+        cNow.add(Calendar.DAY_OF_MONTH, 1);
+        cNow.add(Calendar.HOUR, 3);
+        assertEquals(formatDate(cNow), widget.render());
+    }
+    
+    @Test
+    public void testTomorrow() throws Exception {
+        TomorrowWidget widget = new TomorrowWidget(new MockWidgetRoot(), "!tomorrow");
+        assertEquals(formatDate(tomorrow), widget.render());
+    }
+    
+    @Test
+    public void testYesterday() throws Exception {
+        YesterdayWidget widget = new YesterdayWidget(new MockWidgetRoot(), "!yesterday");
+        assertEquals(formatDate(yesterday), widget.render());
+    }
+    
+    @Test
+    public void testNowAnd1DEqualsTomorrow() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now(+1d -t)");
+        assertEquals(formatDatetime(tomorrow), widget.render());
+    } 
+
+    @Test
+    public void testManyOptions() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now(2012y +2d3h -t -f\"ddMMyyyy hhmm\")");
+        DateFormat format = new SimpleDateFormat("ddMMyyyy hhmm");
+        cNow.set(Calendar.YEAR, 2012);
+        cNow.add(Calendar.DAY_OF_MONTH, 2);
+        cNow.add(Calendar.HOUR, 3);
+        assertEquals(format.format(cNow.getTime()), widget.render());
+    } 
+    
+    @Test
+    public void testDateLiteral() throws Exception {
+        DateWidget widget = new DateWidget(new MockWidgetRoot(), "!date(2024-01-31T10:00 +1M -t)");
+        assertEquals("29/02/2024 10:00", widget.render());
+    }
+    
+    @Test
+    public void testDateLiteralWithTimeToSet() throws Exception {
+        NowWidget widget = new NowWidget(new MockWidgetRoot(), "!now(2024-01-31 2M1d -f\"yyyy-MM-dd HH:mm:ss.SSS\")");
+        assertEquals("2024-02-01 00:00:00.000", widget.render());
+    }
+    
+    @Test
+    public void testDateWithoutLiteral() throws Exception {
+        DateWidget widget = new DateWidget(new MockWidgetRoot(), "!date(-t)");
+        assertEquals(formatDatetime(now), widget.render());
+    }
+    
+    @Test
+    public void testRandomDatesAreReproducible() throws Exception {
+        String text = "!randomDate(seed=42 from=2024-01-01 to=2024-12-31 -f\"yyyy-MM-dd HH:mm\")";
+        MockWidgetRoot page1 = new MockWidgetRoot();
+        MockWidgetRoot page2 = new MockWidgetRoot();
+        String first = new RandomDateWidget(page1, text).render();
+        String second = new RandomDateWidget(page1, text).render();
+        assertFalse(first.equals(second));
+        assertEquals(first, new RandomDateWidget(page2, text).render());
+        assertEquals(second, new RandomDateWidget(page2, text).render());
+        assertTrue(first.startsWith("2024-"));
+    }
+    
+    @Test
+    public void testRandomDateWithoutOption() throws Exception {
+        RandomDateWidget widget = new RandomDateWidget(new MockWidgetRoot(), "!randomDate(-fyyyyMMdd)");
+        String rendered = widget.render();
+        String min = new SimpleDateFormat("yyyyMMdd").format(now);
+        String max = new SimpleDateFormat("yyyyMMdd").format(new Date(now.getTime() + 366L * 24L * 3600L * 1000L));
+        assertTrue(rendered, rendered.compareTo(min) >= 0 && rendered.compareTo(max) <= 0);
+    }
+    
+    @Test
+    public void testTimeDontElapsedBetweenTwoCalls() throws Exception {
+        NowWidget widget1 = new NowWidget(new MockWidgetRoot(), "!now(-t -fyyyyMMddhhmmssSS)");
+        String render1 = widget1.render();
+        Thread.sleep(10); // assert the millisecond has changed between the two calls
+        NowWidget widget2 = new NowWidget(new MockWidgetRoot(), "!now(-t -fyyyyMMddhhmmssSS)");
+        String render2 = widget2.render();
+        assertEquals(render1, render2);
+    } 
+    
+    @Test
+    public void testCurrentDatePublishedBeforeRendering() throws Exception {
+        String property = System.getProperty(ReferenceDate.PROPERTY);
+        System.clearProperty(ReferenceDate.PROPERTY);
+        try {
+            // Load the widget in a new class loader, as a new wiki server does, without rendering it
+            ClassLoader loader = new URLClassLoader(new URL[] { location(NowWidget.class), 
+                    location(ReferenceDate.class), location(WikiWidget.class) }, null);
+            Class.forName(NowWidget.class.getName(), true, loader);
+            assertNotNull(System.getProperty(ReferenceDate.PROPERTY));
+        } finally {
+            if (property == null) {
+                System.clearProperty(ReferenceDate.PROPERTY);
+            } else {
+                System.setProperty(ReferenceDate.PROPERTY, property);
+            }
+        }
+    }
+    
+    @Test
+    public void testInvalidCurrentDateDoesNotBreakTheWidgets() throws Exception {
+        String property = System.getProperty(ReferenceDate.PROPERTY);
+        System.setProperty(ReferenceDate.PROPERTY, "yesterday");
+        try {
+            ClassLoader loader = new URLClassLoader(new URL[] { location(NowWidget.class), 
+                    location(ReferenceDate.class), location(WikiWidget.class) }, null);
+            // Loaded, and loaded again, without ExceptionInInitializerError nor NoClassDefFoundError
+            Class.forName(NowWidget.class.getName(), true, loader);
+            Class.forName(TomorrowWidget.class.getName(), true, loader);
+            assertEquals("yesterday", System.getProperty(ReferenceDate.PROPERTY));
+        } finally {
+            if (property == null) {
+                System.clearProperty(ReferenceDate.PROPERTY);
+            } else {
+                System.setProperty(ReferenceDate.PROPERTY, property);
+            }
+        }
+    }
+    
+    
+    
+    /* Utility methods used in assertions. */
+    
+    private static URL location(Class<?> type) {
+        return type.getProtectionDomain().getCodeSource().getLocation();
+    }
+    
+    private String formatDate(Date date) {
+        return new SimpleDateFormat(DateExpression.DATE_PATTERN).format(date);
+    }
+    
+    private String formatDatetime(Date date) {
+        return new SimpleDateFormat(DateExpression.DATETIME_PATTERN).format(date);
+    }
+    
+    private String formatDate(Calendar calendar) {
+        return new SimpleDateFormat(DateExpression.DATE_PATTERN).format(calendar.getTime());
+    }
+    
+    private String formatDatetime(Calendar calendar) {
+        return new SimpleDateFormat(DateExpression.DATETIME_PATTERN).format(calendar.getTime());
+    }
+    
+}
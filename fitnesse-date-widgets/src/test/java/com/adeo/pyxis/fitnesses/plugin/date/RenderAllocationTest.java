@@ -0,0 +1,171 @@
+package com.adeo.pyxis.fitnesses.plugin.date;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Calendar;
+import java.util.regex.Pattern;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import fitnesse.wikitext.widgets.MockWidgetRoot;
+
+/**
+ * Check the number of bytes allocated by the rendering of the widgets, for
+ * each shape of options. Once the widget is created (the options are parsed),
+ * the rendering should only allocate the returned string: the calendar and the
+ * formatters are reused.
+ *
+ * The widgets are rendered with rotating reference dates: with the same
+ * reference date, the expression would return its last result without any
+ * calculation nor formatting, and the measure would be meaningless.
+ *
+ * The budgets per rendering can be changed with the system properties
+ * <code>render.allocation.budget</code> and 
+ * <code>render.allocation.budget.names</code> (in bytes).
+ */
+public class RenderAllocationTest
+{
+    /**
+     * Bytes allowed by rendering: the returned string (up to about 30 characters),
+     * the result kept by the expression and a few bytes of the formatter internals.
+     */
+    private static final long BUDGET = Long.getLong("render.allocation.budget", 128L).longValue();
+
+    /**
+     * Bytes allowed by rendering when the format contains names of months or days:
+     * the formatter looks up the names in the locale data for each formatting
+     * (the names are not given to the formatter, to keep the standalone names
+     * of the months, @see EvaluationContext).
+     */
+    private static final long NAMES_BUDGET = Long.getLong("render.allocation.budget.names", 1536L).longValue();
+
+    /** Number of renderings before the measure, to let the JIT compile the code. */
+    private static final int WARM_UP = 20000;
+
+    /** Number of measured renderings. */
+    private static final int RENDERINGS = 10000;
+
+    /** 
+     * Reference dates used in turn: more than the results kept by each 
+     * expression, on months of different lengths.
+     */
+    private static final long[] REFERENCES = new long[8];
+
+    static {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2011, Calendar.SEPTEMBER, 8, 9, 54, 55);
+        for (int i = 0; i < REFERENCES.length; i++) {
+            calendar.add(Calendar.DAY_OF_MONTH, 29);
+            calendar.add(Calendar.MINUTE, 37);
+            REFERENCES[i] = calendar.getTimeInMillis();
+        }
+    }
+
+    private com.sun.management.ThreadMXBean threads;
+
+    /** Used to keep the rendered strings alive. */
+    private long renderedLength;
+
+    @Before
+    public void setUp() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void testWithoutOption() throws Exception {
+        assertWithinBudget(new RotatingWidget("!now"));
+        assertWithinBudget(new RotatingWidget("!tomorrow"));
+        assertWithinBudget(new RotatingWidget("!yesterday"));
+    }
+
+    @Test
+    public void testWithTime() throws Exception {
+        assertWithinBudget(new RotatingWidget("!now(-t)"));
+    }
+
+    @Test
+    public void testWithFormat() throws Exception {
+        assertWithinBudget(new RotatingWidget("!now(-fyyyy)"));
+        assertWithinBudget(new RotatingWidget("!now(-f\"yyyy-MM-dd HH:mm:ss.SSS\")"));
+        assertWithinBudget(new RotatingWidget("!now(-f\"EEEE dd MMMM yyyy\")"), NAMES_BUDGET);
+        assertWithinBudget(new RotatingWidget("!now(-fMMMM)"), NAMES_BUDGET);
+    }
+
+    @Test
+    public void testWithTimeToSet() throws Exception {
+        assertWithinBudget(new RotatingWidget("!now(2012y)"));
+        assertWithinBudget(new RotatingWidget("!now(2012y1M31d)"));
+    }
+
+    @Test
+    public void testWithTimeToAdd() throws Exception {
+        assertWithinBudget(new RotatingWidget("!now(+1d)"));
+        assertWithinBudget(new RotatingWidget("!now(-1y6M)"));
+        assertWithinBudget(new RotatingWidget("!now(+3h30m -t)"));
+    }
+
+    @Test
+    public void testWithManyOptions() throws Exception {
+        assertWithinBudget(new RotatingWidget("!now(2012y +2d3h -t -f\"ddMMyyyy hhmm\")"));
+        assertWithinBudget(new RotatingWidget("!tomorrow(0h0m +15m -t)"));
+    }
+
+    /** 
+     * Widget !now, !tomorrow or !yesterday whose reference date changes on 
+     * each rendering.
+     */
+    private static class RotatingWidget extends AbstractDateWidget {
+
+        private static final Pattern PATTERN = Pattern.compile(formatRegex("(?:now|tomorrow|yesterday)"));
+
+        private int rendering = 0;
+
+        RotatingWidget(String text) throws Exception {
+            super(new MockWidgetRoot(), text);
+        }
+
+        @Override
+        protected long getReferenceDate() {
+            return REFERENCES[rendering++ % REFERENCES.length];
+        }
+
+        @Override
+        protected Pattern getPattern() {
+            return PATTERN;
+        }
+    }
+
+    /* Utility methods used in assertions. */
+
+    private void assertWithinBudget(AbstractDateWidget widget) throws Exception {
+        assertWithinBudget(widget, BUDGET);
+    }
+
+    private void assertWithinBudget(AbstractDateWidget widget, long budget) throws Exception {
+        for (int i = 0; i < WARM_UP; i++) {
+            renderedLength += widget.render().length();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long measure = threads.getThreadAllocatedBytes(threadId);
+        long overhead = threads.getThreadAllocatedBytes(threadId) - measure;
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < RENDERINGS; i++) {
+            renderedLength += widget.render().length();
+        }
+        long after = threads.getThreadAllocatedBytes(threadId);
+
+        long bytesByRendering = (after - before - overhead) / RENDERINGS;
+        assertTrue(widget.render() + ": " + bytesByRendering + " bytes by rendering, budget "
+                + budget, bytesByRendering <= budget);
+    }
+}
@@ -0,0 +1,87 @@
+package com.adeo.pyxis.fitnesses.plugin.date;
+
+import static org.junit.Assert.*;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Test the regex of the widgets, as Fitnesse uses them: all the widget
+ * regex are combined in one alternation, applied on the whole page.
+ * 
+ * The benchmark checks the matching time on pathological lines (many
+ * !now( without closing parenthesis) grows linearly with the length of the
+ * line. With a lazy suffix, the time was quadratic.
+ */
+public class WidgetPatternTest
+{
+    /** Combined regex, as built by Fitnesse. */
+    private static final Pattern ALL_WIDGETS = Pattern.compile(
+            NowWidget.REGEXP + "|" + TomorrowWidget.REGEXP + "|" + YesterdayWidget.REGEXP,
+            Pattern.DOTALL | Pattern.MULTILINE);
+    
+    @Test
+    public void testOptionsAreMatched() {
+        assertOptions("-t 2012y", "!now(-t 2012y) and some text)");
+        assertOptions("-f\"(dd) MM\" +1d", "| !tomorrow(-f\"(dd) MM\" +1d) |");
+        assertOptions(null, "!yesterday (-t)");
+    }
+    
+    @Test
+    public void testUnclosedOptionsAreNotMatched() {
+        assertOptions(null, "!now(-t\n) on the next line");
+        assertOptions(null, "!now(-f\"dd) and no closing quote");
+        assertOptions(null, "!now(" + repeat("+1d ", 100) + ")");
+    }
+    
+    @Test
+    public void testMatchingTimeIsLinear() {
+        String line = repeat("| !now(" + repeat("x", 40) + " ", 200);
+        long small = bestMatchingTime(line, 20);
+        long large = bestMatchingTime(repeat(line, 16), 20);
+        
+        // 16 times longer: 16 times slower if linear, 256 times if quadratic
+        assertTrue("small = " + small + "ns, large = " + large + "ns", 
+                large < small * 16 * 4);
+    }
+    
+    /* Utility methods. */
+    
+    private static void assertOptions(String expected, String text) {
+        Matcher matcher = ALL_WIDGETS.matcher(text);
+        assertTrue(matcher.find());
+        String options = null;
+        for (int group = 1; group <= matcher.groupCount(); group++) {
+            if (matcher.group(group) != null) {
+                options = matcher.group(group);
+            }
+        }
+        assertEquals(expected, options);
+    }
+    
+    private static long bestMatchingTime(String text, int runs) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            Matcher matcher = ALL_WIDGETS.matcher(text);
+            int count = 0;
+            while (matcher.find()) {
+                count++;
+            }
+            long time = System.nanoTime() - start;
+            assertTrue(count > 0);
+            best = Math.min(best, time);
+        }
+        return best;
+    }
+    
+    private static String repeat(String text, int count) {
+        StringBuilder result = new StringBuilder(text.length() * count);
+        for (int i = 0; i < count; i++) {
+            result.append(text);
+        }
+        return result.toString();
+    }
+}